@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.client.common;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor used by the asynchronous operations of the clients.
+ * The number of requests in flight (running or waiting for a thread) is bounded: once the limit is reached,
+ * the thread that submits a new request is blocked until one of the previous requests finishes.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class AsyncExecutor {
+
+    /** System property name that sets the number of threads of the default executor. */
+    private static final String MAX_THREADS_KEY = "ASYNC_MAX_THREADS"; //$NON-NLS-1$
+
+    /** System property name that sets the maximum number of requests in flight. */
+    private static final String MAX_IN_FLIGHT_KEY = "ASYNC_MAX_IN_FLIGHT"; //$NON-NLS-1$
+
+    /** Default number of threads of the default executor. */
+    private static final int DEFAULT_MAX_THREADS = 20;
+
+    /** Default maximum number of requests in flight. */
+    private static final int DEFAULT_MAX_IN_FLIGHT = 100;
+
+    /** Prefix of the name of the threads created by the default executor. */
+    private static final String THREAD_NAME_PREFIX = "eemws-async-"; //$NON-NLS-1$
+
+    /** Executor that runs the requests. Created the first time it is needed. */
+    private static ExecutorService executor = null;
+
+    /** Permits for the requests in flight. */
+    private static volatile Semaphore inFlight = new Semaphore(Math.max(1, Integer.getInteger(MAX_IN_FLIGHT_KEY, DEFAULT_MAX_IN_FLIGHT)));
+
+    /**
+     * Constructor.
+     * Utility classes should not have a public constructor.
+     */
+    private AsyncExecutor() {
+
+        /* Utility classes should not have a public constructor. */
+    }
+
+    /**
+     * Sets the executor that will run the asynchronous requests.
+     * The given executor is not shut down by this class.
+     * @param executorService Executor that will run the requests. <code>null</code> to use the default one.
+     */
+    public static synchronized void setExecutor(final ExecutorService executorService) {
+
+        executor = executorService;
+    }
+
+    /**
+     * Sets the maximum number of requests in flight. Requests already submitted are not affected.
+     * @param maxInFlight Maximum number of requests in flight.
+     */
+    public static void setMaxInFlight(final int maxInFlight) {
+
+        inFlight = new Semaphore(Math.max(1, maxInFlight));
+    }
+
+    /**
+     * Submits the given request. Blocks the caller while the maximum number of requests in flight is reached.
+     * @param task Request to run.
+     * @param <T> Type of the request's result.
+     * @return Future with the result of the request.
+     */
+    static <T> Future<T> submit(final Callable<T> task) {
+
+        final Semaphore permits = inFlight;
+        permits.acquireUninterruptibly();
+
+        Future<T> retValue;
+        try {
+            retValue = getExecutor().submit(new Callable<T>() {
+
+                @Override
+                public T call() throws Exception {
+
+                    try {
+                        return task.call();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Returns the executor that runs the requests, creating the default one if none was set.
+     * Threads of the default executor are daemon so that they do not prevent the application from ending.
+     * @return Executor that runs the requests.
+     */
+    private static synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, Integer.getInteger(MAX_THREADS_KEY, DEFAULT_MAX_THREADS)), new ThreadFactory() {
+
+                /** Number of threads created so far. */
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+
+                    Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.client.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the bytes encoded as base64 in a character sequence.
+ * The content is decoded as it is read, so the decoded bytes are never held in memory at once.
+ * White spaces and line breaks are ignored, decoding stops at the first padding character.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class Base64InputStream extends InputStream {
+
+    /** Base64 alphabet. */
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"; //$NON-NLS-1$
+
+    /** Padding character. */
+    private static final char PADDING = '=';
+
+    /** Value of each (ASCII) character in the alphabet, -1 if the character is not in the alphabet. */
+    private static final int[] DECODE_TABLE = new int[128];
+
+    /** Number of characters in a base64 group. */
+    private static final int CHARS_PER_GROUP = 4;
+
+    /** Number of bits per base64 character. */
+    private static final int BITS_PER_CHAR = 6;
+
+    /** Mask of a byte. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** Number of bits per byte. */
+    private static final int BITS_PER_BYTE = 8;
+
+    static {
+        Arrays.fill(DECODE_TABLE, -1);
+        for (int cont = 0; cont < ALPHABET.length(); cont++) {
+            DECODE_TABLE[ALPHABET.charAt(cont)] = cont;
+        }
+    }
+
+    /** Base64 encoded content. */
+    private final CharSequence source;
+
+    /** Position of the next character to read. */
+    private int position = 0;
+
+    /** Decoded bytes of the current group. */
+    private final byte[] group = new byte[CHARS_PER_GROUP - 1];
+
+    /** Position of the next byte of the current group. */
+    private int groupPos = 0;
+
+    /** Number of decoded bytes in the current group. */
+    private int groupLen = 0;
+
+    /**
+     * Creates a new stream that decodes the given base64 content.
+     * @param base64 Base64 encoded content.
+     */
+    public Base64InputStream(final CharSequence base64) {
+
+        source = base64;
+    }
+
+    /**
+     * Reads the next decoded byte.
+     * @return Next decoded byte, -1 if the end of the content is reached.
+     * @throws IOException If the content is not valid base64.
+     */
+    @Override
+    public int read() throws IOException {
+
+        int retValue = -1;
+
+        if (groupPos < groupLen || decodeGroup()) {
+            retValue = group[groupPos++] & BYTE_MASK;
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Reads up to <code>len</code> decoded bytes into the given array.
+     * @param b Destination array.
+     * @param off Offset in the array.
+     * @param len Maximum number of bytes to read.
+     * @return Number of bytes read, -1 if the end of the content is reached.
+     * @throws IOException If the content is not valid base64.
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+
+        int count = 0;
+        boolean loop = true;
+
+        while (count < len && loop) {
+            if (groupPos < groupLen || decodeGroup()) {
+                int n = Math.min(len - count, groupLen - groupPos);
+                System.arraycopy(group, groupPos, b, off + count, n);
+                groupPos += n;
+                count += n;
+            } else {
+                loop = false;
+            }
+        }
+
+        int retValue = count;
+        if (count == 0 && len > 0) {
+            retValue = -1;
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Decodes the next group of (up to) four characters.
+     * @return <code>true</code> if at least one byte was decoded, <code>false</code> if the end of the content is reached.
+     * @throws IOException If the content is not valid base64.
+     */
+    private boolean decodeGroup() throws IOException {
+
+        int bits = 0;
+        int numChars = 0;
+        int length = source.length();
+
+        while (numChars < CHARS_PER_GROUP && position < length) {
+            char c = source.charAt(position++);
+
+            if (c == PADDING) {
+                position = length;
+            } else if (c < DECODE_TABLE.length && DECODE_TABLE[c] != -1) {
+                bits = (bits << BITS_PER_CHAR) | DECODE_TABLE[c];
+                numChars++;
+            } else if (!Character.isWhitespace(c)) {
+                throw new IOException("Invalid base64 character at position " + (position - 1)); //$NON-NLS-1$
+            }
+        }
+
+        if (numChars == 1) {
+            throw new IOException("Truncated base64 content"); //$NON-NLS-1$
+        }
+
+        /* Incomplete groups (only at the end) are aligned as if they were padded. */
+        int numBytes = numChars - 1;
+        if (numBytes > 0) {
+            bits <<= (CHARS_PER_GROUP - numChars) * BITS_PER_CHAR;
+            for (int cont = 0; cont < numBytes; cont++) {
+                group[cont] = (byte) (bits >> ((CHARS_PER_GROUP - 2 - cont) * BITS_PER_BYTE));
+            }
+        }
+
+        groupPos = 0;
+        groupLen = Math.max(0, numBytes);
+
+        return numBytes > 0;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.client.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the bytes encoded as base64 (without line breaks) into a character sequence or, as ASCII bytes, into
+ * another stream.
+ * The content is encoded as it is written. The last group is written (with padding) when the stream is closed,
+ * closing this stream does not close the destination.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class Base64OutputStream extends OutputStream {
+
+    /** Base64 alphabet. */
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray(); //$NON-NLS-1$
+
+    /** Padding character. */
+    private static final char PADDING = '=';
+
+    /** Number of bytes in a base64 group. */
+    private static final int BYTES_PER_GROUP = 3;
+
+    /** Number of bits per base64 character. */
+    private static final int BITS_PER_CHAR = 6;
+
+    /** Number of bits per byte. */
+    private static final int BITS_PER_BYTE = 8;
+
+    /** Mask of a base64 character. */
+    private static final int CHAR_MASK = 0x3F;
+
+    /** Mask of a byte. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** Destination of the encoded content, <code>null</code> if it is written as bytes. */
+    private final Appendable destination;
+
+    /** Destination of the encoded content as ASCII bytes, <code>null</code> if it is written as characters. */
+    private final OutputStream byteDestination;
+
+    /** Bytes of the current group. */
+    private int bits = 0;
+
+    /** Number of bytes of the current group. */
+    private int groupLen = 0;
+
+    /** Whether the stream is closed. */
+    private boolean closed = false;
+
+    /**
+     * Creates a new stream that writes the encoded content into the given destination.
+     * @param out Destination of the encoded content (i.e. a <code>StringBuilder</code> or a <code>Writer</code>).
+     */
+    public Base64OutputStream(final Appendable out) {
+
+        destination = out;
+        byteDestination = null;
+    }
+
+    /**
+     * Creates a new stream that writes the encoded content as ASCII bytes into the given stream.
+     * A byte per character takes half the memory than a character sequence.
+     * @param out Destination of the encoded content (i.e. a <code>ByteArrayOutputStream</code>).
+     */
+    public Base64OutputStream(final OutputStream out) {
+
+        destination = null;
+        byteDestination = out;
+    }
+
+    /**
+     * Writes the given byte.
+     * @param b Byte to write.
+     * @throws IOException If the stream is closed or the destination cannot be written.
+     */
+    @Override
+    public void write(final int b) throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream closed"); //$NON-NLS-1$
+        }
+
+        bits = (bits << BITS_PER_BYTE) | (b & BYTE_MASK);
+        groupLen++;
+
+        if (groupLen == BYTES_PER_GROUP) {
+            writeGroup(BYTES_PER_GROUP + 1);
+        }
+    }
+
+    /**
+     * Writes the last (incomplete) group with padding. The destination is not closed.
+     * @throws IOException If the destination cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (!closed) {
+            closed = true;
+
+            if (groupLen > 0) {
+                int numChars = groupLen + 1;
+                bits <<= (BYTES_PER_GROUP - groupLen) * BITS_PER_BYTE;
+                writeGroup(numChars);
+                for (int cont = numChars; cont <= BYTES_PER_GROUP; cont++) {
+                    append(PADDING);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the characters of the current group.
+     * @param numChars Number of characters to write.
+     * @throws IOException If the destination cannot be written.
+     */
+    private void writeGroup(final int numChars) throws IOException {
+
+        for (int cont = 0; cont < numChars; cont++) {
+            append(ALPHABET[(bits >> ((BYTES_PER_GROUP - cont) * BITS_PER_CHAR)) & CHAR_MASK]);
+        }
+
+        bits = 0;
+        groupLen = 0;
+    }
+
+    /**
+     * Writes the given character into the destination.
+     * @param character Base64 character.
+     * @throws IOException If the destination cannot be written.
+     */
+    private void append(final char character) throws IOException {
+
+        if (destination != null) {
+            destination.append(character);
+        } else {
+            byteDestination.write(character);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker of an end point. After a number of consecutive connection errors the circuit is opened and
+ * the calls to the end point fail at once, instead of waiting for the connection timeout of a server that is
+ * down. Once the open time has passed one probe call is let through (half-open): if it reaches the server the
+ * circuit is closed again, otherwise it stays open for another open time.
+ * Only transport failures are counted (see {@link #isTransportFailure(Throwable)}), any response of the server
+ * (even a fault) closes the circuit. The calls rejected by an open circuit fail with a {@link CircuitOpenException}
+ * as cause.
+ * All the clients of the same end point share its circuit breaker. Default values can be set with system properties.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class CircuitBreaker {
+
+    /** States of a circuit breaker. */
+    public enum State {
+
+        /** Calls are made. */
+        CLOSED,
+
+        /** Calls fail at once. */
+        OPEN,
+
+        /** One probe call is made, the rest fail at once. */
+        HALF_OPEN
+    }
+
+    /** System property name that sets the number of consecutive connection errors that open the circuit. */
+    private static final String FAILURE_THRESHOLD_KEY = "CIRCUIT_FAILURE_THRESHOLD"; //$NON-NLS-1$
+
+    /** System property name that sets the milliseconds that the circuit stays open before a probe call. */
+    private static final String OPEN_TIME_KEY = "CIRCUIT_OPEN_MS"; //$NON-NLS-1$
+
+    /** Default number of consecutive connection errors that open the circuit. */
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /** Default milliseconds that the circuit stays open before a probe call. */
+    private static final long DEFAULT_OPEN_TIME = 30000L;
+
+    /** Log. */
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    /** Circuit breakers by end point. */
+    private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    /** Number of consecutive connection errors that open the circuit, <code>0</code> to never open it. */
+    private static volatile int failureThreshold = Integer.getInteger(FAILURE_THRESHOLD_KEY, DEFAULT_FAILURE_THRESHOLD);
+
+    /** Milliseconds that the circuit stays open before a probe call. */
+    private static volatile long openTime = Long.getLong(OPEN_TIME_KEY, DEFAULT_OPEN_TIME);
+
+    /** End point of this circuit breaker. */
+    private final String endPoint;
+
+    /** Current state. */
+    private State state = State.CLOSED;
+
+    /** Time when the circuit was opened or the last probe call was let through. */
+    private long stateTime = 0;
+
+    /** Number of consecutive connection errors. */
+    private int failures = 0;
+
+    /** Number of calls that failed at once because the circuit was open. */
+    private long rejected = 0;
+
+    /**
+     * Creates a closed circuit breaker for the given end point.
+     * @param url End point.
+     */
+    private CircuitBreaker(final String url) {
+
+        endPoint = url;
+    }
+
+    /**
+     * Returns the circuit breaker of the given end point.
+     * @param url End point.
+     * @return Circuit breaker shared by all the clients of the end point.
+     */
+    public static CircuitBreaker get(final URL url) {
+
+        String key = String.valueOf(url);
+        CircuitBreaker retValue = BREAKERS.get(key);
+
+        if (retValue == null) {
+            retValue = new CircuitBreaker(key);
+            CircuitBreaker previous = BREAKERS.putIfAbsent(key, retValue);
+            if (previous != null) {
+                retValue = previous;
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Returns the circuit breakers of all the end points called.
+     * @return Circuit breakers.
+     */
+    public static Collection<CircuitBreaker> getAll() {
+
+        return new ArrayList<>(BREAKERS.values());
+    }
+
+    /**
+     * Sets the number of consecutive connection errors that open the circuit of an end point.
+     * @param threshold Number of errors, <code>0</code> to never open the circuits.
+     */
+    public static void setFailureThreshold(final int threshold) {
+
+        failureThreshold = Math.max(0, threshold);
+    }
+
+    /**
+     * Sets the time that the circuit of an end point stays open before a probe call is let through.
+     * @param millis Open time in milliseconds.
+     */
+    public static void setOpenTime(final long millis) {
+
+        openTime = Math.max(0, millis);
+    }
+
+    /**
+     * Returns the end point of this circuit breaker.
+     * @return End point.
+     */
+    public String getEndPoint() {
+
+        return endPoint;
+    }
+
+    /**
+     * Returns the current state of this circuit breaker.
+     * @return Current state.
+     */
+    public synchronized State getState() {
+
+        return state;
+    }
+
+    /**
+     * Returns the number of consecutive connection errors of the end point.
+     * @return Number of consecutive connection errors.
+     */
+    public synchronized int getFailureCount() {
+
+        return failures;
+    }
+
+    /**
+     * Returns the number of calls that failed at once because the circuit was open.
+     * @return Number of rejected calls.
+     */
+    public synchronized long getRejectedCount() {
+
+        return rejected;
+    }
+
+    /**
+     * Checks whether a call can be made. Once the open time has passed, one probe call is let through.
+     * If the result of a probe call is not known after another open time, another probe call is let through.
+     * @return <code>true</code> if the call can be made, <code>false</code> if it has to fail at once.
+     */
+    synchronized boolean allowRequest() {
+
+        boolean retValue = true;
+
+        if (state != State.CLOSED && failureThreshold > 0) {
+            long now = System.currentTimeMillis();
+            if (now - stateTime >= openTime) {
+                state = State.HALF_OPEN;
+                stateTime = now;
+            } else {
+                retValue = false;
+                rejected++;
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Records a call that reached the server. The circuit is closed.
+     */
+    synchronized void onSuccess() {
+
+        if (state != State.CLOSED) {
+            LOGGER.info("Circuit closed, server is reachable again: " + endPoint); //$NON-NLS-1$
+        }
+
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * Records a call that failed because of a transport failure. The circuit is opened if the probe call failed
+     * or if the threshold of consecutive errors is reached.
+     */
+    synchronized void onFailure() {
+
+        failures++;
+
+        int threshold = failureThreshold;
+        if (threshold > 0 && (state == State.HALF_OPEN || state == State.CLOSED && failures >= threshold)) {
+            if (state == State.CLOSED) {
+                LOGGER.info("Circuit opened after " + failures + " connection errors: " + endPoint); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+
+            state = State.OPEN;
+            stateTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Checks whether the given exception is a transport failure, that is, the server could not be reached or did
+     * not respond. Other errors (i.e. HTTP status, TLS handshake) mean that the server is up.
+     * @param ex Exception thrown by the call.
+     * @return <code>true</code> if the exception or any of its causes is a <code>SocketException</code>
+     * (connection refused, reset, no route to host...), a <code>SocketTimeoutException</code> or an
+     * <code>UnknownHostException</code>.
+     */
+    static boolean isTransportFailure(final Throwable ex) {
+
+        return RetryPolicy.hasCause(ex, SocketException.class, SocketTimeoutException.class, UnknownHostException.class);
+    }
+
+    /**
+     * Returns a description of this circuit breaker.
+     * @return End point and state.
+     */
+    @Override
+    public String toString() {
+
+        return endPoint + " " + getState(); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+/**
+ * Cause of the calls that fail at once because the circuit of their end point is open (see {@link CircuitBreaker}).
+ * No connection was attempted.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class CircuitOpenException extends Exception {
+
+    /** Class ID. */
+    private static final long serialVersionUID = -3817220590448160571L;
+
+    /** End point whose circuit is open. */
+    private final String endPoint;
+
+    /**
+     * Creates a new exception for the given end point.
+     * @param url End point whose circuit is open.
+     */
+    public CircuitOpenException(final String url) {
+
+        super("Circuit open, the server does not respond and the call was not made: " + url); //$NON-NLS-1$
+        endPoint = url;
+    }
+
+    /**
+     * Returns the end point whose circuit is open.
+     * @return End point.
+     */
+    public String getEndPoint() {
+
+        return endPoint;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Identity of a client: private key and certificate chain used to sign the requests and to authenticate
+ * the TLS connections. The key store is loaded only once and the TLS context is created only once, so several
+ * identities can be used in the same JVM without setting the global <code>javax.net.ssl.*</code> properties.
+ * Identities are immutable and can be shared between clients and threads.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class ClientIdentity {
+
+    /** Default key store type. */
+    private static final String DEFAULT_KEY_STORE_TYPE = "PKCS12"; //$NON-NLS-1$
+
+    /** TLS protocol of the context. */
+    private static final String TLS_PROTOCOL = "TLS"; //$NON-NLS-1$
+
+    /** Algorithm used to identify the password in the cache (the password itself is not kept). */
+    private static final String PASSWORD_DIGEST = "SHA-256"; //$NON-NLS-1$
+
+    /** Identities loaded from files, by file, type, modification time and password digest. */
+    private static final ConcurrentMap<String, ClientIdentity> LOADED = new ConcurrentHashMap<>();
+
+    /** Cache key of the last identity loaded from each file, by file. */
+    private static final ConcurrentMap<String, String> LAST_LOADED = new ConcurrentHashMap<>();
+
+    /** Private key. */
+    private final PrivateKey privateKey;
+
+    /** Certificate chain, the first one is the certificate of the private key. */
+    private final X509Certificate[] certificateChain;
+
+    /** TLS context that authenticates with this identity. */
+    private final SSLContext sslContext;
+
+    /** TLS socket factory of the context, shared by all the clients of this identity. */
+    private final SSLSocketFactory socketFactory;
+
+    /**
+     * Creates a new identity with the given key entry of the given key store.
+     * @param keyStore Loaded key store.
+     * @param password Password of the key entry.
+     * @param alias Alias of the key entry. <code>null</code> to use the first key entry.
+     * @throws IOException If the key entry cannot be copied into the key store of the TLS context.
+     * @throws GeneralSecurityException If the key store has no such key entry, the key cannot be read
+     * or the key entry has no certificate chain.
+     */
+    public ClientIdentity(final KeyStore keyStore, final char[] password, final String alias) throws IOException, GeneralSecurityException {
+
+        String keyAlias = alias;
+        if (keyAlias == null) {
+            Enumeration<String> aliases = keyStore.aliases();
+            while (keyAlias == null && aliases.hasMoreElements()) {
+                String candidate = aliases.nextElement();
+                if (keyStore.isKeyEntry(candidate)) {
+                    keyAlias = candidate;
+                }
+            }
+        }
+
+        if (keyAlias == null || !keyStore.isKeyEntry(keyAlias)) {
+            throw new UnrecoverableKeyException(String.valueOf(keyAlias));
+        }
+
+        /* Only private key entries have a certificate chain (secret key entries have none). */
+        Certificate[] chain = keyStore.getCertificateChain(keyAlias);
+        if (chain == null || chain.length == 0) {
+            throw new CertificateException(keyAlias);
+        }
+
+        privateKey = (PrivateKey) keyStore.getKey(keyAlias, password);
+
+        certificateChain = Arrays.copyOf(chain, chain.length, X509Certificate[].class);
+
+        /* The key manager must only present the selected key. */
+        KeyStore single = KeyStore.getInstance(keyStore.getType());
+        single.load(null, null);
+        single.setKeyEntry(keyAlias, privateKey, password, chain);
+
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(single, password);
+
+        /* Default trust managers: the JVM trust store (javax.net.ssl.trustStore) is still used. */
+        sslContext = SSLContext.getInstance(TLS_PROTOCOL);
+        sslContext.init(kmf.getKeyManagers(), null, null);
+        TransportConfiguration.configureSessions(sslContext.getClientSessionContext());
+
+        socketFactory = TransportConfiguration.wrap(sslContext.getSocketFactory());
+    }
+
+    /**
+     * Returns the identity of the first key entry of the given key store file.
+     * Each file is loaded only once, it is loaded again only if it is modified (the identity loaded before
+     * is then removed from the cache).
+     * @param keyStoreFile Key store file.
+     * @param password Password of the key store and its key entry.
+     * @param type Key store type. <code>null</code> for PKCS12.
+     * @return Identity of the key store.
+     * @throws IOException If the file cannot be read.
+     * @throws GeneralSecurityException If the key store or its key entry cannot be read.
+     */
+    public static ClientIdentity load(final String keyStoreFile, final char[] password, final String type) throws IOException, GeneralSecurityException {
+
+        String keyStoreType = type == null ? DEFAULT_KEY_STORE_TYPE : type;
+        File file = new File(keyStoreFile).getCanonicalFile();
+
+        MessageDigest digest = MessageDigest.getInstance(PASSWORD_DIGEST);
+        byte[] passwordDigest = digest.digest(new String(password).getBytes(StandardCharsets.UTF_8));
+
+        String cacheKey = file.getPath() + File.pathSeparator + keyStoreType + File.pathSeparator + file.lastModified()
+                + File.pathSeparator + Arrays.toString(passwordDigest);
+
+        ClientIdentity retValue = LOADED.get(cacheKey);
+
+        if (retValue == null) {
+            KeyStore keyStore = KeyStore.getInstance(keyStoreType);
+            try (InputStream is = Files.newInputStream(file.toPath())) {
+                keyStore.load(is, password);
+            }
+
+            retValue = new ClientIdentity(keyStore, password, null);
+
+            ClientIdentity previous = LOADED.putIfAbsent(cacheKey, retValue);
+            if (previous != null) {
+                retValue = previous;
+            }
+
+            /* The identity loaded before from the same file is stale: it is removed from the cache. */
+            String staleKey = LAST_LOADED.put(file.getPath(), cacheKey);
+            if (staleKey != null && !staleKey.equals(cacheKey)) {
+                LOADED.remove(staleKey);
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Returns the private key used to sign the requests.
+     * @return Private key.
+     */
+    public PrivateKey getPrivateKey() {
+
+        return privateKey;
+    }
+
+    /**
+     * Returns the certificate of the private key.
+     * @return Certificate.
+     */
+    public X509Certificate getCertificate() {
+
+        return certificateChain[0];
+    }
+
+    /**
+     * Returns the certificate chain of the private key.
+     * @return Copy of the certificate chain, the first one is the certificate of the private key.
+     */
+    public X509Certificate[] getCertificateChain() {
+
+        return certificateChain.clone();
+    }
+
+    /**
+     * Returns the TLS context that authenticates with this identity.
+     * @return TLS context.
+     */
+    public SSLContext getSSLContext() {
+
+        return sslContext;
+    }
+
+    /**
+     * Returns the TLS socket factory shared by all the clients of this identity, so that their connections
+     * are kept alive and reused.
+     * @return TLS socket factory.
+     */
+    SSLSocketFactory getSocketFactory() {
+
+        return socketFactory;
+    }
+}
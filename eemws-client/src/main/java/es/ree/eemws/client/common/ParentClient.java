@@ -26,17 +26,14 @@ import java.net.URL;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
-import javax.xml.namespace.QName;
-import javax.xml.ws.Binding;
 import javax.xml.ws.BindingProvider;
-import javax.xml.ws.handler.Handler;
 
 import org.w3c.dom.Element;
 
 import _504.iec62325.wss._1._0.MsgFaultMsg;
-import _504.iec62325.wss._1._0.PortTFEDIType;
-import _504.iec62325.wss._1._0.ServiceEME;
 import ch.iec.tc57._2011.schema.message.HeaderType;
 import ch.iec.tc57._2011.schema.message.PayloadType;
 import ch.iec.tc57._2011.schema.message.RequestMessage;
@@ -50,18 +47,14 @@ import es.ree.eemws.core.utils.operations.HandlerException;
 
 /**
  * Parent class for all client's operations.
+ * Once configured, a client can be shared between threads provided that the methods that receive
+ * a <code>MessageMetaData</code> object are used: each call fills its own metadata.
  *
  * @author Red Eléctrica de España S.A.U.
  * @version 1.1 10/01/2016
  */
 public abstract class ParentClient {
 
-    /** Service name of the Web Service EME. */
-    private static final QName SERVICE_NAME = new QName("urn:iec62325.504:wss:1:0", "ServiceEME"); //$NON-NLS-1$ //$NON-NLS-2$
-
-    /** WSDL file name in order to avoid connection to the remote server just to retrieve it. */
-    private static final String WSDL_FILE = "wsdl/urn-iec62325-504-wss-1-0.wsdl"; //$NON-NLS-1$
-
     /** Web service's URL endpoint . */
     private URL endPoint = null;
 
@@ -77,8 +70,20 @@ public abstract class ParentClient {
     /** Private key of the certificate. */
     private PrivateKey privateKey = null;
 
-    /** Message metadata. */
-    private MessageMetaData messageMetaData =  new MessageMetaData();
+    /** Identity of the client, <code>null</code> to use the JVM default TLS context. */
+    private ClientIdentity identity = null;
+
+    /** Connection timeout in milliseconds, <code>-1</code> to use the default one. */
+    private int connectTimeout = -1;
+
+    /** Read timeout in milliseconds, <code>-1</code> to use the default one. */
+    private int readTimeout = -1;
+
+    /** Retry policy of the calls, <code>null</code> to use the default one. */
+    private RetryPolicy retryPolicy = null;
+
+    /** Metadata of the last call that was made without providing a metadata object. */
+    private volatile MessageMetaData messageMetaData =  new MessageMetaData();
 
     /**
      * Sets the URL of the end point of the web service.
@@ -135,86 +140,249 @@ public abstract class ParentClient {
         privateKey = inPrivateKey;
     }
 
+    /**
+     * Sets the identity of this client. Its private key and certificate sign the requests and its TLS context
+     * authenticates the connections, instead of the JVM default ones.
+     * @param clientIdentity Identity of the client. <code>null</code> to use the JVM default TLS context.
+     */
+    public final void setIdentity(final ClientIdentity clientIdentity) {
+
+        identity = clientIdentity;
+        if (clientIdentity == null) {
+            certificate = null;
+            privateKey = null;
+        } else {
+            certificate = clientIdentity.getCertificate();
+            privateKey = clientIdentity.getPrivateKey();
+        }
+    }
+
+    /**
+     * Sets the connection timeout of this client's calls.
+     * @param millis Timeout in milliseconds, <code>0</code> to use the JVM default, <code>-1</code> to use the
+     * default one (see {@link TransportConfiguration}).
+     */
+    public final void setConnectTimeout(final int millis) {
+
+        connectTimeout = millis;
+    }
+
+    /**
+     * Sets the read timeout of this client's calls.
+     * @param millis Timeout in milliseconds, <code>0</code> to use the JVM default, <code>-1</code> to use the
+     * default one (see {@link TransportConfiguration}).
+     */
+    public final void setReadTimeout(final int millis) {
+
+        readTimeout = millis;
+    }
+
+    /**
+     * Sets the retry policy of this client's calls.
+     * @param policy Retry policy. <code>null</code> to use the default one (see {@link RetryPolicy#getDefault()}).
+     */
+    public final void setRetryPolicy(final RetryPolicy policy) {
+
+        retryPolicy = policy;
+    }
+
     /**
      * Gets message's metadata. Metadata holds information that is not
      * present neither in the request nor in the response such as certificate information or status.
+     * Note that this is the metadata of the last call made without a metadata object, if the client is
+     * shared between threads use the methods that receive a <code>MessageMetaData</code> object instead.
      * @return Message's metadata.
      */
     public final MessageMetaData getMessageMetaData() {
         return messageMetaData;
     }
 
+    /**
+     * Creates a new metadata object and sets it as the one returned by {@link #getMessageMetaData()}.
+     * Used by the operations that do not receive a metadata object.
+     * @return New metadata object.
+     */
+    protected final MessageMetaData newMessageMetaData() {
+
+        MessageMetaData retValue = new MessageMetaData();
+        messageMetaData = retValue;
+        return retValue;
+    }
+
+    /**
+     * Runs the given operation in the asynchronous executor.
+     * The caller is blocked while the maximum number of requests in flight is reached.
+     * @param operation Operation to run.
+     * @param <T> Type of the operation's result.
+     * @return Future with the result of the operation. Operation exceptions are thrown by
+     * <code>Future.get</code> as the cause of an <code>ExecutionException</code>.
+     * @see AsyncExecutor
+     */
+    protected final <T> Future<T> submit(final Callable<T> operation) {
+
+        return AsyncExecutor.submit(operation);
+    }
+
     /**
      * Sends the given request message to the configured URL.
      * @param message Message to send.
      * @return Response to the message.
      * @throws HandlerException If it is not possible to send the message or if the received response has errors.
+     * @see #sendMessage(RequestMessage, MessageMetaData)
      */
-    @SuppressWarnings("rawtypes")
     protected final ResponseMessage sendMessage(final RequestMessage message) throws HandlerException {
 
+        return sendMessage(message, newMessageMetaData());
+    }
+
+    /**
+     * Sends the given request message to the configured URL.
+     * Calls that fail because of a transient connection error are retried according to the retry policy of this
+     * client (see {@link RetryPolicy}). Calls fail at once while the circuit of the end point is open
+     * (see {@link CircuitBreaker}).
+     * @param message Message to send.
+     * @param metaData Metadata object for this call. Its values are set even if the call fails.
+     * @return Response to the message.
+     * @throws HandlerException If it is not possible to send the message or if the received response has errors.
+     */
+    protected final ResponseMessage sendMessage(final RequestMessage message, final MessageMetaData metaData) throws HandlerException {
+
         ResponseMessage retValue = null;
+        RetryPolicy policy = retryPolicy;
+        if (policy == null) {
+            policy = RetryPolicy.getDefault();
+        }
 
-        try {
-            ServiceEME service = new ServiceEME(getClass().getClassLoader().getResource(WSDL_FILE), SERVICE_NAME);
-            PortTFEDIType port = service.getServiceEMEPort();
-            BindingProvider bindingProvider = (BindingProvider) port;
-            bindingProvider.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, endPoint.toString());
+        boolean idempotent = message.getHeader() != null && EnumVerb.GET.toString().equals(message.getHeader().getVerb());
+        CircuitBreaker breaker = CircuitBreaker.get(endPoint);
+        boolean done = false;
+        int attempt = 1;
+
+        RetryPolicy.onCall();
+
+        while (!done) {
+
+            /* Do not wait for the connection timeout of a server that is down. */
+            if (!breaker.allowRequest()) {
+                throw new HandlerException(EnumErrorCatalog.ERR_HAND_020, new CircuitOpenException(breaker.getEndPoint()));
+            }
+
+            try {
+                retValue = send(message, metaData);
+                breaker.onSuccess();
+                done = true;
+
+            } catch (HandlerException ex) {
+
+                /* Faults and invalid responses: the server is reachable. */
+                breaker.onSuccess();
+                throw ex;
+
+            } catch (RuntimeException ex) {
+
+                EnumErrorCatalog error = getErrorCode(ex);
+                if (CircuitBreaker.isTransportFailure(ex)) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+
+                if (!RetryPolicy.isRetryable(ex, idempotent) || !policy.awaitRetry(attempt)) {
+
+                    /* Do no throw a RuntimeException ! */
+                    if (error == EnumErrorCatalog.ERR_HAND_022) {
+                        throw new HandlerException(error, ex);
+                    } else {
+                        throw new HandlerException(error);
+                    }
+                }
+
+                attempt++;
+            }
+        }
+
+        return retValue;
+    }
 
-            /* sets a handler in order to sign and verify signature. The handler is useful also for debug. */
-            messageMetaData = new MessageMetaData();
-            Binding binding = bindingProvider.getBinding();
-            List<Handler> handlerList = binding.getHandlerChain();
-            handlerList.add(new SendHandler(signRequest, verifyResponse, messageMetaData, certificate, privateKey));
-            binding.setHandlerChain(handlerList);
+    /**
+     * Sends the given request message once.
+     * @param message Message to send.
+     * @param metaData Metadata object for this call.
+     * @return Response to the message.
+     * @throws HandlerException If the server returns a fault or if the received response has errors.
+     * @throws RuntimeException If it is not possible to send the message (connection errors).
+     */
+    private ResponseMessage send(final RequestMessage message, final MessageMetaData metaData) throws HandlerException {
 
-            retValue = port.request(message);
+        ResponseMessage retValue = null;
+        PortPool.PooledPort pooledPort = null;
+        boolean reusable = false;
+
+        try {
+            pooledPort = PortPool.borrow(endPoint, signRequest, verifyResponse, certificate, privateKey);
+            pooledPort.getHandler().setMessageMetaData(metaData);
+            TransportConfiguration.apply((BindingProvider) pooledPort.getPort(), connectTimeout, readTimeout, identity);
+
+            retValue = pooledPort.getPort().request(message);
+            reusable = true;
 
             /* Throws exception if the retrieved message has an invalid signature. */
-            MessageMetaData metadata = getMessageMetaData();
-            if (metadata.getException() != null) {
-                throw (HandlerException) metadata.getException();
+            if (metaData.getException() != null) {
+                throw (HandlerException) metaData.getException();
             }
 
         } catch (MsgFaultMsg ex) {
             
+            reusable = true;
             throw new HandlerException(EnumErrorCatalog.ERR_HAND_010, ex);
         
-        } catch (RuntimeException ex) {
-            
-            /* Translate into plain English most common connection issues: */
-            String errStr = ex.getMessage();
+        } finally {
             
-            if (errStr.indexOf("trustAnchors") != -1 || errStr.indexOf("PKIX path building failed") != -1) { //$NON-NLS-1$ //$NON-NLS-2$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_013);
-            } else if (errStr.indexOf("No subject alternative") != -1) {  //$NON-NLS-1$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_014);
-            } else if (errStr.indexOf("UnknownHostException") != -1) { //$NON-NLS-1$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_015);
-            } else if (errStr.indexOf("The server sent HTTP status code 404:") != -1) { //$NON-NLS-1$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_016);
-            } else if (errStr.indexOf("The server sent HTTP status code 403:") != -1) { //$NON-NLS-1$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_017);
-            } else if (errStr.indexOf("The server sent HTTP status code 401:") != -1) { //$NON-NLS-1$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_018);
-            } else if (errStr.indexOf("The server sent HTTP status code 200:") != -1) { //$NON-NLS-1$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_019);
-            } else if (errStr.indexOf("Connection refused") != -1 || errStr.indexOf("Connection timed out") != -1) { //$NON-NLS-1$ //$NON-NLS-2$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_020);
-            } else if (errStr.indexOf("The server sent HTTP status code 400:") != -1) { //$NON-NLS-1$ 
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_021);
-            } else if (errStr.indexOf("unrecognized_name") != -1) { //$NON-NLS-1$
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_023);
-            } else {
-                
-                /* Do no throw a RuntimeException ! */
-                throw new HandlerException(EnumErrorCatalog.ERR_HAND_022, ex);
+            if (pooledPort != null) {
+                PortPool.release(pooledPort, reusable);
             }
         }
 
         return retValue;
     }
 
+    /**
+     * Translates into plain English the most common connection issues.
+     * @param ex Exception thrown by the call.
+     * @return Error of the catalog that describes the issue. <code>ERR_HAND_022</code> if the issue is not known.
+     */
+    private static EnumErrorCatalog getErrorCode(final RuntimeException ex) {
+
+        EnumErrorCatalog retValue;
+        String errStr = String.valueOf(ex.getMessage());
+            
+        if (errStr.indexOf("trustAnchors") != -1 || errStr.indexOf("PKIX path building failed") != -1) { //$NON-NLS-1$ //$NON-NLS-2$
+            retValue = EnumErrorCatalog.ERR_HAND_013;
+        } else if (errStr.indexOf("No subject alternative") != -1) {  //$NON-NLS-1$
+            retValue = EnumErrorCatalog.ERR_HAND_014;
+        } else if (errStr.indexOf("UnknownHostException") != -1) { //$NON-NLS-1$
+            retValue = EnumErrorCatalog.ERR_HAND_015;
+        } else if (errStr.indexOf("The server sent HTTP status code 404:") != -1) { //$NON-NLS-1$
+            retValue = EnumErrorCatalog.ERR_HAND_016;
+        } else if (errStr.indexOf("The server sent HTTP status code 403:") != -1) { //$NON-NLS-1$
+            retValue = EnumErrorCatalog.ERR_HAND_017;
+        } else if (errStr.indexOf("The server sent HTTP status code 401:") != -1) { //$NON-NLS-1$
+            retValue = EnumErrorCatalog.ERR_HAND_018;
+        } else if (errStr.indexOf("The server sent HTTP status code 200:") != -1) { //$NON-NLS-1$
+            retValue = EnumErrorCatalog.ERR_HAND_019;
+        } else if (errStr.indexOf("Connection refused") != -1 || errStr.indexOf("Connection timed out") != -1) { //$NON-NLS-1$ //$NON-NLS-2$
+            retValue = EnumErrorCatalog.ERR_HAND_020;
+        } else if (errStr.indexOf("The server sent HTTP status code 400:") != -1) { //$NON-NLS-1$ 
+            retValue = EnumErrorCatalog.ERR_HAND_021;
+        } else if (errStr.indexOf("unrecognized_name") != -1) { //$NON-NLS-1$
+            retValue = EnumErrorCatalog.ERR_HAND_023;
+        } else {
+            retValue = EnumErrorCatalog.ERR_HAND_022;
+        }
+
+        return retValue;
+    }
+
     /**
      * Validates the received response.
      * @param responseMessage Received response.
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.client.common;
+
+import java.net.URL;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.Binding;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.Handler;
+
+import _504.iec62325.wss._1._0.PortTFEDIType;
+import _504.iec62325.wss._1._0.ServiceEME;
+
+/**
+ * Pool of pre-configured web service ports.
+ * Parsing the WSDL and creating the JAX-WS proxy is the most expensive part of a request, so ports
+ * are kept by end point, signature flags and identity and are reused by the following calls.
+ * A port is used by only one thread at a time: clients borrow it and return it once the call is done.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class PortPool {
+
+    /** Service name of the Web Service EME. */
+    private static final QName SERVICE_NAME = new QName("urn:iec62325.504:wss:1:0", "ServiceEME"); //$NON-NLS-1$ //$NON-NLS-2$
+
+    /** WSDL file name in order to avoid connection to the remote server just to retrieve it. */
+    private static final String WSDL_FILE = "wsdl/urn-iec62325-504-wss-1-0.wsdl"; //$NON-NLS-1$
+
+    /** System property name that sets the maximum number of idle ports kept for each configuration. */
+    private static final String POOL_SIZE_KEY = "PORT_POOL_SIZE"; //$NON-NLS-1$
+
+    /** System property name that sets the number of milliseconds after which an idle port is discarded. */
+    private static final String IDLE_TIMEOUT_KEY = "PORT_POOL_IDLE_TIMEOUT_MS"; //$NON-NLS-1$
+
+    /** Default maximum number of idle ports kept for each configuration. */
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    /** Default number of milliseconds after which an idle port is discarded (5 minutes). */
+    private static final long DEFAULT_IDLE_TIMEOUT = 300000L;
+
+    /** Maximum number of idle ports kept for each configuration. */
+    private static volatile int maxIdlePorts = Integer.getInteger(POOL_SIZE_KEY, DEFAULT_POOL_SIZE);
+
+    /** Number of milliseconds after which an idle port is discarded. */
+    private static volatile long idleTimeout = Long.getLong(IDLE_TIMEOUT_KEY, DEFAULT_IDLE_TIMEOUT);
+
+    /** Service object, created only once (WSDL is parsed here). */
+    private static ServiceEME service = null;
+
+    /** Idle ports by configuration. Most recently used ports are kept at the head of the queue. */
+    private static final ConcurrentMap<PortKey, Deque<PooledPort>> POOL = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * Utility classes should not have a public constructor.
+     */
+    private PortPool() {
+
+        /* Utility classes should not have a public constructor. */
+    }
+
+    /**
+     * Sets the maximum number of idle ports kept for each configuration.
+     * A value of 0 disables the pool (a new port is created for each request).
+     * @param size Maximum number of idle ports kept for each configuration.
+     */
+    public static void setMaxIdlePorts(final int size) {
+
+        maxIdlePorts = Math.max(0, size);
+    }
+
+    /**
+     * Sets the number of milliseconds after which an idle port is discarded.
+     * @param millis Number of milliseconds after which an idle port is discarded.
+     */
+    public static void setIdleTimeout(final long millis) {
+
+        idleTimeout = millis;
+    }
+
+    /**
+     * Discards all the idle ports.
+     */
+    public static void clear() {
+
+        POOL.clear();
+    }
+
+    /**
+     * Returns a port configured with the given values. The port is taken from the pool if there is one available,
+     * otherwise a new one is created. The port must be returned with {@link #release(PooledPort, boolean)}.
+     * @param endPoint Web service's URL end point.
+     * @param signRequest <code>true</code> if the request has to be signed.
+     * @param verifyResponse <code>true</code> if the response's signature has to be validated.
+     * @param certificate Certificate to sign the request. Can be <code>null</code>.
+     * @param privateKey Private key of the certificate. Can be <code>null</code>.
+     * @return Port ready to be used.
+     */
+    static PooledPort borrow(final URL endPoint, final boolean signRequest, final boolean verifyResponse,
+            final X509Certificate certificate, final PrivateKey privateKey) {
+
+        PortKey key = new PortKey(endPoint.toString(), signRequest, verifyResponse, certificate, privateKey);
+        PooledPort retValue = null;
+
+        Deque<PooledPort> idle = POOL.get(key);
+        if (idle != null) {
+            retValue = idle.pollFirst();
+
+            /* The head is the most recently used port, if it is too old, the others are too. */
+            if (retValue != null && retValue.isExpired(System.currentTimeMillis())) {
+                idle.clear();
+                retValue = null;
+            }
+        }
+
+        if (retValue == null) {
+            retValue = createPort(key);
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Returns the given port to the pool.
+     * @param port Port previously obtained with {@link #borrow(URL, boolean, boolean, X509Certificate, PrivateKey)}.
+     * @param reusable <code>false</code> if the port must be discarded (i.e. the call ended with an unexpected error).
+     */
+    static void release(final PooledPort port, final boolean reusable) {
+
+        port.getHandler().setMessageMetaData(null);
+
+        if (reusable && maxIdlePorts > 0) {
+
+            Deque<PooledPort> idle = POOL.get(port.getKey());
+            if (idle == null) {
+                Deque<PooledPort> newIdle = new ConcurrentLinkedDeque<>();
+                idle = POOL.putIfAbsent(port.getKey(), newIdle);
+                if (idle == null) {
+                    idle = newIdle;
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            port.setLastUsed(now);
+            evictExpired(idle, now);
+
+            if (idle.size() < maxIdlePorts) {
+                idle.offerFirst(port);
+            }
+        }
+    }
+
+    /**
+     * Removes from the given queue the ports that have been idle for too long.
+     * @param idle Queue of idle ports.
+     * @param now Current time in milliseconds.
+     */
+    private static void evictExpired(final Deque<PooledPort> idle, final long now) {
+
+        Iterator<PooledPort> it = idle.descendingIterator();
+        boolean loop = true;
+        while (loop && it.hasNext()) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+            } else {
+                loop = false;
+            }
+        }
+    }
+
+    /**
+     * Creates a new port with the given configuration.
+     * @param key Port configuration.
+     * @return New port.
+     */
+    @SuppressWarnings("rawtypes")
+    private static PooledPort createPort(final PortKey key) {
+
+        PortTFEDIType port;
+        synchronized (PortPool.class) {
+            if (service == null) {
+                service = new ServiceEME(PortPool.class.getClassLoader().getResource(WSDL_FILE), SERVICE_NAME);
+            }
+
+            port = service.getServiceEMEPort();
+        }
+
+        BindingProvider bindingProvider = (BindingProvider) port;
+        bindingProvider.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, key.endPoint);
+
+        /* sets a handler in order to sign and verify signature. The handler is useful also for debug. */
+        SendHandler handler = new SendHandler(key.signRequest, key.verifyResponse, null, key.certificate, key.privateKey);
+        Binding binding = bindingProvider.getBinding();
+        List<Handler> handlerList = binding.getHandlerChain();
+        handlerList.add(handler);
+        binding.setHandlerChain(handlerList);
+
+        return new PooledPort(key, port, handler);
+    }
+
+    /**
+     * Port taken from the pool together with its handler.
+     */
+    static final class PooledPort {
+
+        /** Configuration of this port. */
+        private final PortKey key;
+
+        /** JAX-WS port. */
+        private final PortTFEDIType port;
+
+        /** Handler in charge of signature and signature verification. */
+        private final SendHandler handler;
+
+        /** Last time (in milliseconds) that this port was returned to the pool. */
+        private long lastUsed;
+
+        /**
+         * Creates a new pooled port.
+         * @param portKey Configuration of the port.
+         * @param wsPort JAX-WS port.
+         * @param sendHandler Handler of the port.
+         */
+        private PooledPort(final PortKey portKey, final PortTFEDIType wsPort, final SendHandler sendHandler) {
+            key = portKey;
+            port = wsPort;
+            handler = sendHandler;
+        }
+
+        /**
+         * Returns the JAX-WS port.
+         * @return JAX-WS port.
+         */
+        PortTFEDIType getPort() {
+            return port;
+        }
+
+        /**
+         * Returns the handler of this port.
+         * @return Handler of this port.
+         */
+        SendHandler getHandler() {
+            return handler;
+        }
+
+        /**
+         * Returns the configuration of this port.
+         * @return Configuration of this port.
+         */
+        private PortKey getKey() {
+            return key;
+        }
+
+        /**
+         * Sets the last time that this port was used.
+         * @param time Time in milliseconds.
+         */
+        private void setLastUsed(final long time) {
+            lastUsed = time;
+        }
+
+        /**
+         * Returns whether this port has been idle for too long.
+         * @param now Current time in milliseconds.
+         * @return <code>true</code> if the port must be discarded.
+         */
+        private boolean isExpired(final long now) {
+            return now - lastUsed > idleTimeout;
+        }
+    }
+
+    /**
+     * Configuration values of a port. Ports are only shared between clients with the same configuration.
+     * Note that the URL is kept as a String: <code>URL.equals</code> resolves host names.
+     */
+    private static final class PortKey {
+
+        /** Web service's URL end point. */
+        private final String endPoint;
+
+        /** Flag to sign the request. */
+        private final boolean signRequest;
+
+        /** Flag to verify response's signature. */
+        private final boolean verifyResponse;
+
+        /** Certificate to sign request. */
+        private final X509Certificate certificate;
+
+        /** Private key of the certificate. */
+        private final PrivateKey privateKey;
+
+        /**
+         * Creates a new key with the given configuration.
+         * @param url Web service's URL end point.
+         * @param sign Flag to sign the request.
+         * @param verify Flag to verify response's signature.
+         * @param cert Certificate to sign request.
+         * @param key Private key of the certificate.
+         */
+        PortKey(final String url, final boolean sign, final boolean verify, final X509Certificate cert, final PrivateKey key) {
+            endPoint = url;
+            signRequest = sign;
+            verifyResponse = verify;
+            certificate = cert;
+            privateKey = key;
+        }
+
+        /**
+         * Returns this key hash code.
+         * @return This key hash code.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(endPoint, Boolean.valueOf(signRequest), Boolean.valueOf(verifyResponse), certificate, privateKey);
+        }
+
+        /**
+         * Compares this key with the given object.
+         * @param obj Object to compare with.
+         * @return <code>true</code> if both keys have the same configuration.
+         */
+        @Override
+        public boolean equals(final Object obj) {
+
+            boolean retValue = false;
+
+            if (obj instanceof PortKey) {
+                PortKey other = (PortKey) obj;
+                retValue = endPoint.equals(other.endPoint) && signRequest == other.signRequest
+                        && verifyResponse == other.verifyResponse && Objects.equals(certificate, other.certificate)
+                        && Objects.equals(privateKey, other.privateKey);
+            }
+
+            return retValue;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry policy of the calls that fail because of a transient connection error.
+ * Requests that only read (verb <code>get</code>: list, get and query) are retried on any transport failure
+ * (connection not established, reset or timed out), according to the cause of the error.
+ * Requests that create data (put) are only retried if the cause of the error shows that the connection was
+ * never established, since otherwise the server could have processed it.
+ * Retries wait an exponential backoff with full jitter, so that the clients do not retry all at the same time.
+ * All the clients share a retry budget: each call earns a fraction of a retry and each retry spends one, so
+ * a long outage cannot multiply the load of the server.
+ * Default values can be set with system properties.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class RetryPolicy {
+
+    /** System property name that sets the default max number of attempts of a call (first one included). */
+    private static final String MAX_ATTEMPTS_KEY = "RETRY_MAX_ATTEMPTS"; //$NON-NLS-1$
+
+    /** System property name that sets the default initial backoff in milliseconds. */
+    private static final String BASE_DELAY_KEY = "RETRY_BASE_DELAY_MS"; //$NON-NLS-1$
+
+    /** System property name that sets the default max backoff in milliseconds. */
+    private static final String MAX_DELAY_KEY = "RETRY_MAX_DELAY_MS"; //$NON-NLS-1$
+
+    /** System property name that sets the percentage of the calls that can be retried. */
+    private static final String BUDGET_PERCENT_KEY = "RETRY_BUDGET_PERCENT"; //$NON-NLS-1$
+
+    /** Default max number of attempts of a call. */
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /** Default initial backoff in milliseconds. */
+    private static final long DEFAULT_BASE_DELAY = 200;
+
+    /** Default max backoff in milliseconds. */
+    private static final long DEFAULT_MAX_DELAY = 5000;
+
+    /** Default percentage of the calls that can be retried. */
+    private static final int DEFAULT_BUDGET_PERCENT = 20;
+
+    /** Retries that can be spent at once, so that the first failures of an outage are retried. */
+    private static final int BUDGET_BURST = 10;
+
+    /** Budget units per retry (a call earns its percentage of a retry). */
+    private static final long UNITS_PER_RETRY = 100;
+
+    /** Max exponent of the backoff, to avoid overflows. */
+    private static final int MAX_BACKOFF_EXPONENT = 30;
+
+    /** Policy that never retries. */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    /** Default policy of the clients. */
+    private static volatile RetryPolicy defaultPolicy = new RetryPolicy(Integer.getInteger(MAX_ATTEMPTS_KEY, DEFAULT_MAX_ATTEMPTS),
+            Long.getLong(BASE_DELAY_KEY, DEFAULT_BASE_DELAY), Long.getLong(MAX_DELAY_KEY, DEFAULT_MAX_DELAY));
+
+    /** Percentage of the calls that can be retried. */
+    private static volatile int budgetPercent = Integer.getInteger(BUDGET_PERCENT_KEY, DEFAULT_BUDGET_PERCENT);
+
+    /** Budget units available, shared by all the clients. */
+    private static final AtomicLong BUDGET = new AtomicLong(BUDGET_BURST * UNITS_PER_RETRY);
+
+    /** Number of retries made. */
+    private static final AtomicLong RETRIES = new AtomicLong();
+
+    /** Number of retries not made because the budget was spent. */
+    private static final AtomicLong RETRIES_DENIED = new AtomicLong();
+
+    /** Max number of attempts of a call, first one included. */
+    private final int maxAttempts;
+
+    /** Initial backoff in milliseconds. */
+    private final long baseDelay;
+
+    /** Max backoff in milliseconds. */
+    private final long maxDelay;
+
+    /**
+     * Creates a new policy.
+     * @param attempts Max number of attempts of a call, first one included. <code>1</code> to not retry.
+     * @param baseDelayMillis Backoff before the first retry in milliseconds, it is doubled on each retry.
+     * @param maxDelayMillis Max backoff in milliseconds.
+     */
+    public RetryPolicy(final int attempts, final long baseDelayMillis, final long maxDelayMillis) {
+
+        maxAttempts = Math.max(1, attempts);
+        baseDelay = Math.max(0, baseDelayMillis);
+        maxDelay = Math.max(baseDelay, maxDelayMillis);
+    }
+
+    /**
+     * Returns the policy of the clients that do not set their own one.
+     * @return Default policy.
+     */
+    public static RetryPolicy getDefault() {
+
+        return defaultPolicy;
+    }
+
+    /**
+     * Sets the policy of the clients that do not set their own one.
+     * @param policy Default policy. <code>null</code> to not retry.
+     */
+    public static void setDefault(final RetryPolicy policy) {
+
+        if (policy == null) {
+            defaultPolicy = NONE;
+        } else {
+            defaultPolicy = policy;
+        }
+    }
+
+    /**
+     * Sets the percentage of the calls that can be retried by all the clients.
+     * @param percent Percentage of the calls, <code>0</code> to only allow the initial burst of retries.
+     */
+    public static void setBudgetPercent(final int percent) {
+
+        budgetPercent = Math.max(0, percent);
+    }
+
+    /**
+     * Returns the number of retries made.
+     * @return Number of retries.
+     */
+    public static long getRetryCount() {
+
+        return RETRIES.get();
+    }
+
+    /**
+     * Returns the number of retries that were not made because the retry budget was spent.
+     * @return Number of retries denied.
+     */
+    public static long getRetryDeniedCount() {
+
+        return RETRIES_DENIED.get();
+    }
+
+    /**
+     * Checks whether a call that failed with the given exception can be retried according to its operation.
+     * The error code of the call is not used: unknown errors (i.e. invalid responses, HTTP 5xx) share the same
+     * code than connection errors.
+     * @param cause Exception thrown by the call.
+     * @param idempotent <code>true</code> if the request only reads (verb <code>get</code>).
+     * @return <code>true</code> if the error is a transport failure and it is safe to send the request again.
+     */
+    static boolean isRetryable(final Throwable cause, final boolean idempotent) {
+
+        boolean retValue;
+
+        if (idempotent) {
+            retValue = isNotSent(cause) || hasCause(cause, SocketTimeoutException.class, SocketException.class);
+        } else {
+            retValue = isNotSent(cause);
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Checks whether the given exception was thrown before the request was sent, that is, the connection
+     * was never established. The error message cannot be used for this: a read that times out once the request
+     * was sent has the same "Connection timed out" message than a connection that cannot be established.
+     * @param cause Exception thrown by the call.
+     * @return <code>true</code> if the exception or any of its causes is a <code>ConnectException</code>,
+     * <code>UnknownHostException</code> or <code>NoRouteToHostException</code>.
+     */
+    static boolean isNotSent(final Throwable cause) {
+
+        return hasCause(cause, ConnectException.class, UnknownHostException.class, NoRouteToHostException.class);
+    }
+
+    /**
+     * Checks whether the given exception or any of its causes is of one of the given types.
+     * @param ex Exception to check.
+     * @param types Exception types.
+     * @return <code>true</code> if the exception or any of its causes is an instance of one of the types.
+     */
+    static boolean hasCause(final Throwable ex, final Class<?>... types) {
+
+        boolean retValue = false;
+        Throwable current = ex;
+
+        while (current != null && !retValue) {
+            for (Class<?> type : types) {
+                retValue = retValue || type.isInstance(current);
+            }
+
+            if (current.getCause() == current) {
+                current = null;
+            } else {
+                current = current.getCause();
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Adds the share of a new call to the retry budget.
+     */
+    static void onCall() {
+
+        long max = BUDGET_BURST * UNITS_PER_RETRY;
+        long current = BUDGET.get();
+        while (current < max && !BUDGET.compareAndSet(current, Math.min(max, current + budgetPercent))) {
+            current = BUDGET.get();
+        }
+    }
+
+    /**
+     * Waits before the given retry if this policy and the retry budget allow it.
+     * @param attempt Number of the attempt that failed, starting at <code>1</code>.
+     * @return <code>true</code> if the call has to be retried, <code>false</code> if it has to fail now.
+     */
+    boolean awaitRetry(final int attempt) {
+
+        boolean retValue = attempt < maxAttempts && spendBudget();
+
+        if (retValue) {
+            long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, MAX_BACKOFF_EXPONENT));
+            long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+                RETRIES.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                retValue = false;
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Spends one retry of the budget.
+     * @return <code>true</code> if there was budget for one retry.
+     */
+    private static boolean spendBudget() {
+
+        boolean retValue = false;
+        boolean done = false;
+
+        while (!done) {
+            long current = BUDGET.get();
+            if (current < UNITS_PER_RETRY) {
+                RETRIES_DENIED.incrementAndGet();
+                done = true;
+            } else {
+                retValue = BUDGET.compareAndSet(current, current - UNITS_PER_RETRY);
+                done = retValue;
+            }
+        }
+
+        return retValue;
+    }
+}
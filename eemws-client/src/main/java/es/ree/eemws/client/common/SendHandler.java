@@ -20,7 +20,6 @@
  */
 package es.ree.eemws.client.common;
 
-import java.io.IOException;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.Calendar;
@@ -30,13 +29,15 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.namespace.QName;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.soap.SOAPBody;
 import javax.xml.soap.SOAPException;
 import javax.xml.ws.handler.MessageContext;
 import javax.xml.ws.handler.soap.SOAPHandler;
 import javax.xml.ws.handler.soap.SOAPMessageContext;
 
-import org.xml.sax.SAXException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import es.ree.eemws.core.utils.error.EnumErrorCatalog;
 import es.ree.eemws.core.utils.iec61968100.EnumMessageStatus;
@@ -47,7 +48,6 @@ import es.ree.eemws.core.utils.security.SignatureManager;
 import es.ree.eemws.core.utils.security.SignatureManagerException;
 import es.ree.eemws.core.utils.security.SignatureSyntaxException;
 import es.ree.eemws.core.utils.security.SignatureVerificationException;
-import es.ree.eemws.core.utils.xml.XMLUtil;
 
 /**
  * Implements a SOAP handler in order to sign requests and verify responses' signatures.
@@ -73,6 +73,15 @@ public final class SendHandler implements SOAPHandler<SOAPMessageContext> {
     /** Message's metadata. */ 
     private MessageMetaData messageData = null;
 
+    /** Local name of the response message element. */
+    private static final String RESPONSE_MESSAGE_TAG = "ResponseMessage"; //$NON-NLS-1$
+
+    /** Local name of the reply element of the response message. */
+    private static final String REPLY_TAG = "Reply"; //$NON-NLS-1$
+
+    /** Local name of the result element of the reply. */
+    private static final String RESULT_TAG = "Result"; //$NON-NLS-1$
+
     /** Log (only for debug). */
     private static final Logger LOGGER = Logger.getLogger(SendHandler.class.getName());
 
@@ -94,6 +103,16 @@ public final class SendHandler implements SOAPHandler<SOAPMessageContext> {
         privateKey = inPrivateKey;
     }
 
+    /**
+     * Sets the metadata object that will hold the values of the current call.
+     * Pooled handlers are reused between calls, so the metadata is set each time the port is borrowed.
+     * @param msgMetaData Message meta data of the current call.
+     */
+    void setMessageMetaData(final MessageMetaData msgMetaData) {
+
+        messageData = msgMetaData;
+    }
+
     /**
      * Gets this handler headers.
      * @return An empty set.
@@ -126,11 +145,12 @@ public final class SendHandler implements SOAPHandler<SOAPMessageContext> {
     public boolean handleFault(final SOAPMessageContext messageContext) {
         
         try {
+            StringBuilder fault = new StringBuilderMessage(messageContext).getStringMessage();
             messageData.setStatus(EnumMessageStatus.FAILED);
             messageData.setServerTimestamp(Calendar.getInstance());
-            messageData.setRejectText(new StringBuilderMessage(messageContext).getStringMessage().toString());
+            messageData.setRejectText(fault.toString());
             
-            logSoapConversation(messageContext);
+            logSoapConversation(messageContext, fault);
 
         } catch (SOAPException e) {
         
@@ -151,31 +171,41 @@ public final class SendHandler implements SOAPHandler<SOAPMessageContext> {
 
         boolean returnValue = true;
         boolean output = ((Boolean) messageContext.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue();
+        StringBuilder serializedMessage = null;
 
         try {
 
             if (output && flagSignRequest) {
 
-                StringBuilderMessage sbm = new StringBuilderMessage(messageContext);
+                /* The body content is signed in place: the message is neither serialized nor parsed again. */
+                SOAPBody body = messageContext.getMessage().getSOAPBody();
+                Document document = body.extractContentAsDocument();
 
                 if (certificate != null && privateKey != null) {
-                    SignatureManager.signString(sbm.getStringMessage(), privateKey, certificate);
+                    SignatureManager.signDocument(document, privateKey, certificate);
                 } else {
-                    SignatureManager.signString(sbm.getStringMessage());
+                    SignatureManager.signDocument(document);
                 }
 
-                messageContext.getMessage().getSOAPBody().removeContents();
-                messageContext.getMessage().getSOAPBody().addDocument(XMLUtil.string2Document(sbm.getStringMessage()));
+                body.addDocument(document);
 
             } else if (!output) {
                 
-                StringBuilderMessage sbm = new StringBuilderMessage(messageContext);
-                
-                messageData.setStatus(sbm.getStatus());
+                /* Status is read from the DOM, the message is serialized only if its signature must be verified. */
+                SOAPBody body = messageContext.getMessage().getSOAPBody();
+                messageData.setStatus(readStatus(body));
                 messageData.setServerTimestamp(Calendar.getInstance());
                 
                 if (flagVerifyResponseSignature) {
-                    X509Certificate x509Certificate = SignatureManager.verifyString(sbm.getStringMessage());
+
+                    /* Certificates already validated only need the signature check, otherwise the whole chain is validated. */
+                    X509Certificate x509Certificate = VerifiedCertificateCache.verify(getChildElement(body, RESPONSE_MESSAGE_TAG));
+                    if (x509Certificate == null) {
+                        serializedMessage = new StringBuilderMessage(messageContext).getStringMessage();
+                        x509Certificate = SignatureManager.verifyString(serializedMessage);
+                        VerifiedCertificateCache.add(x509Certificate);
+                    }
+
                     messageData.setSignatureCertificate(x509Certificate);
                 }
             }
@@ -193,23 +223,67 @@ public final class SendHandler implements SOAPHandler<SOAPMessageContext> {
             returnValue = false;
             messageData.setException(new HandlerException(EnumErrorCatalog.ERR_HAND_009, e));
 
-        } catch (ParserConfigurationException | SAXException | IOException | SOAPException e) {
+        } catch (SOAPException e) {
             returnValue = false;
             messageData.setException(new HandlerException(EnumErrorCatalog.ERR_HAND_004, e));
 
         } finally {
 
-            logSoapConversation(messageContext);
+            logSoapConversation(messageContext, serializedMessage);
         }
 
         return returnValue;
     }
 
+    /**
+     * Reads the status of the response from the <code>Result</code> element of its reply.
+     * @param body Body of the response.
+     * @return Status of the response. <code>null</code> if the response has no status or the status is not known.
+     */
+    private static EnumMessageStatus readStatus(final SOAPBody body) {
+
+        EnumMessageStatus retValue = null;
+
+        Element result = getChildElement(getChildElement(getChildElement(body, RESPONSE_MESSAGE_TAG), REPLY_TAG), RESULT_TAG);
+        if (result != null) {
+            String value = result.getTextContent().trim();
+            for (EnumMessageStatus status : EnumMessageStatus.values()) {
+                if (retValue == null && (status.name().equals(value) || status.toString().equals(value))) {
+                    retValue = status;
+                }
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Returns the first child element of the given node with the given local name.
+     * @param parent Parent node. Can be <code>null</code>.
+     * @param localName Local name of the child element.
+     * @return First child element with the given local name. <code>null</code> if there is no such element.
+     */
+    private static Element getChildElement(final Node parent, final String localName) {
+
+        Element retValue = null;
+
+        if (parent != null) {
+            for (Node node = parent.getFirstChild(); node != null && retValue == null; node = node.getNextSibling()) {
+                if (node.getNodeType() == Node.ELEMENT_NODE && localName.equals(node.getLocalName())) {
+                    retValue = (Element) node;
+                }
+            }
+        }
+
+        return retValue;
+    }
+
     /**
      * Logs the current SOAP conversation. Log only appears in debug (FINE) mode.
      * @param messageContext Current soap context.
+     * @param serializedMessage Message already serialized by the handler. <code>null</code> if the message was not serialized.
      */
-    private void logSoapConversation(final SOAPMessageContext messageContext) {
+    private void logSoapConversation(final SOAPMessageContext messageContext, final StringBuilder serializedMessage) {
 
         if (LOGGER.isLoggable(Level.FINE)) {
             boolean output = ((Boolean) messageContext.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue();
@@ -221,7 +295,12 @@ public final class SendHandler implements SOAPHandler<SOAPMessageContext> {
             }
 
             try {
-                LOGGER.fine(new StringBuilderMessage(messageContext).getStringMessage().toString());
+                StringBuilder message = serializedMessage;
+                if (message == null) {
+                    message = new StringBuilderMessage(messageContext).getStringMessage();
+                }
+
+                LOGGER.fine(message.toString());
                 LOGGER.fine("---- end of message ---- "); //$NON-NLS-1$
             } catch (SOAPException e) {
                 LOGGER.log(Level.FINE, "Unable to convert soap message to xml...", e); //$NON-NLS-1$
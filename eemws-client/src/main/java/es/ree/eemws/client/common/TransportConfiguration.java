@@ -0,0 +1,459 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.xml.ws.BindingProvider;
+
+/**
+ * Transport settings applied to every port before each call: connection and read timeouts, HTTP keep-alive
+ * and TLS session reuse. All the ports share the same TLS socket factory, so the JVM keeps alive and reuses
+ * the connections of all the clients and resumes their TLS sessions instead of doing full handshakes.
+ * Default values can be set with system properties. The number of connections and handshakes is counted
+ * in order to check how many connections are reused.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class TransportConfiguration {
+
+    /** System property name that sets the default connection timeout in milliseconds. */
+    private static final String CONNECT_TIMEOUT_KEY = "CONNECT_TIMEOUT_MS"; //$NON-NLS-1$
+
+    /** System property name that sets the default read timeout in milliseconds. */
+    private static final String READ_TIMEOUT_KEY = "READ_TIMEOUT_MS"; //$NON-NLS-1$
+
+    /** System property name that sets the size of the TLS session cache. */
+    private static final String TLS_SESSION_CACHE_SIZE_KEY = "TLS_SESSION_CACHE_SIZE"; //$NON-NLS-1$
+
+    /** System property name that sets the number of seconds that a TLS session can be resumed. */
+    private static final String TLS_SESSION_TIMEOUT_KEY = "TLS_SESSION_TIMEOUT_S"; //$NON-NLS-1$
+
+    /** JVM system property that enables HTTP keep-alive. */
+    private static final String HTTP_KEEP_ALIVE = "http.keepAlive"; //$NON-NLS-1$
+
+    /** JVM system property that sets the max number of idle connections kept alive per host. */
+    private static final String HTTP_MAX_CONNECTIONS = "http.maxConnections"; //$NON-NLS-1$
+
+    /** Request context properties for the connection timeout (Metro and JDK implementations). */
+    private static final String[] CONNECT_TIMEOUT_PROPERTIES = {"com.sun.xml.ws.connect.timeout", "com.sun.xml.internal.ws.connect.timeout"}; //$NON-NLS-1$ //$NON-NLS-2$
+
+    /** Request context properties for the read timeout (Metro and JDK implementations). */
+    private static final String[] READ_TIMEOUT_PROPERTIES = {"com.sun.xml.ws.request.timeout", "com.sun.xml.internal.ws.request.timeout"}; //$NON-NLS-1$ //$NON-NLS-2$
+
+    /** Request context properties for the TLS socket factory (Metro and JDK implementations). */
+    private static final String[] SSL_SOCKET_FACTORY_PROPERTIES = {"com.sun.xml.ws.transport.https.client.SSLSocketFactory", //$NON-NLS-1$
+        "com.sun.xml.internal.ws.transport.https.client.SSLSocketFactory"}; //$NON-NLS-1$
+
+    /** Default connection timeout in milliseconds, <code>0</code> to use the JVM default. */
+    private static volatile int defaultConnectTimeout = Integer.getInteger(CONNECT_TIMEOUT_KEY, 0);
+
+    /** Default read timeout in milliseconds, <code>0</code> to use the JVM default. */
+    private static volatile int defaultReadTimeout = Integer.getInteger(READ_TIMEOUT_KEY, 0);
+
+    /** Max number of TLS sessions kept in order to be resumed, <code>-1</code> to keep the JVM default. */
+    private static volatile int sessionCacheSize = -1;
+
+    /** Number of seconds that a TLS session can be resumed, <code>-1</code> to keep the JVM default. */
+    private static volatile int sessionTimeout = -1;
+
+    /** Shared TLS socket factory. Created the first time it is needed. */
+    private static CountingSocketFactory socketFactory = null;
+
+    /** Number of calls made. */
+    private static final AtomicLong REQUESTS = new AtomicLong();
+
+    /** Number of TLS connections opened. */
+    private static final AtomicLong CONNECTIONS = new AtomicLong();
+
+    /** Number of full TLS handshakes. */
+    private static final AtomicLong FULL_HANDSHAKES = new AtomicLong();
+
+    /** Number of TLS handshakes that resumed a previous session. */
+    private static final AtomicLong RESUMED_HANDSHAKES = new AtomicLong();
+
+    static {
+        Integer cacheSize = Integer.getInteger(TLS_SESSION_CACHE_SIZE_KEY);
+        if (cacheSize != null) {
+            setSessionCacheSize(cacheSize);
+        }
+
+        Integer sessionTimeout = Integer.getInteger(TLS_SESSION_TIMEOUT_KEY);
+        if (sessionTimeout != null) {
+            setSessionTimeout(sessionTimeout);
+        }
+    }
+
+    /**
+     * Constructor.
+     * Utility classes should not have a public constructor.
+     */
+    private TransportConfiguration() {
+
+        /* Utility classes should not have a public constructor. */
+    }
+
+    /**
+     * Sets the default connection timeout of the clients that do not set their own one.
+     * @param millis Timeout in milliseconds, <code>0</code> to use the JVM default.
+     */
+    public static void setDefaultConnectTimeout(final int millis) {
+
+        defaultConnectTimeout = Math.max(0, millis);
+    }
+
+    /**
+     * Sets the default read timeout of the clients that do not set their own one.
+     * @param millis Timeout in milliseconds, <code>0</code> to use the JVM default.
+     */
+    public static void setDefaultReadTimeout(final int millis) {
+
+        defaultReadTimeout = Math.max(0, millis);
+    }
+
+    /**
+     * Enables or disables HTTP keep-alive and sets the max number of idle connections kept alive per host.
+     * The JVM reads these values only once, so this method must be called before the first call.
+     * @param keepAlive <code>true</code> to keep the connections alive (JVM default).
+     * @param maxConnectionsPerHost Max number of idle connections kept alive per host (JVM default is 5).
+     */
+    public static void setKeepAlive(final boolean keepAlive, final int maxConnectionsPerHost) {
+
+        System.setProperty(HTTP_KEEP_ALIVE, String.valueOf(keepAlive));
+        System.setProperty(HTTP_MAX_CONNECTIONS, String.valueOf(Math.max(1, maxConnectionsPerHost)));
+    }
+
+    /**
+     * Sets the max number of TLS sessions kept in order to be resumed.
+     * It applies to the default TLS context and to the client identities created afterwards.
+     * @param size Max number of sessions, <code>0</code> for no limit.
+     */
+    public static void setSessionCacheSize(final int size) {
+
+        sessionCacheSize = Math.max(0, size);
+        configureSessions(getClientSessionContext());
+    }
+
+    /**
+     * Sets the number of seconds that a TLS session can be resumed.
+     * It applies to the default TLS context and to the client identities created afterwards.
+     * @param seconds Number of seconds, <code>0</code> for no limit.
+     */
+    public static void setSessionTimeout(final int seconds) {
+
+        sessionTimeout = Math.max(0, seconds);
+        configureSessions(getClientSessionContext());
+    }
+
+    /**
+     * Applies the TLS session cache size and timeout that have been set to the given session context.
+     * @param sessions Client session context of a TLS context. <code>null</code> if there is none.
+     */
+    static void configureSessions(final SSLSessionContext sessions) {
+
+        if (sessions != null) {
+            int size = sessionCacheSize;
+            if (size >= 0) {
+                sessions.setSessionCacheSize(size);
+            }
+
+            int seconds = sessionTimeout;
+            if (seconds >= 0) {
+                sessions.setSessionTimeout(seconds);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of calls made.
+     * @return Number of calls.
+     */
+    public static long getRequestCount() {
+
+        return REQUESTS.get();
+    }
+
+    /**
+     * Returns the number of TLS connections opened. The other calls reused a connection kept alive.
+     * @return Number of connections opened.
+     */
+    public static long getConnectionCount() {
+
+        return CONNECTIONS.get();
+    }
+
+    /**
+     * Returns the number of full TLS handshakes.
+     * @return Number of full handshakes.
+     */
+    public static long getFullHandshakeCount() {
+
+        return FULL_HANDSHAKES.get();
+    }
+
+    /**
+     * Returns the number of TLS handshakes that resumed a previous session.
+     * @return Number of resumed handshakes.
+     */
+    public static long getResumedHandshakeCount() {
+
+        return RESUMED_HANDSHAKES.get();
+    }
+
+    /**
+     * Applies the transport settings to the given port before a call.
+     * @param port Port that will make the call.
+     * @param connectTimeout Connection timeout of the client in milliseconds, <code>-1</code> to use the default one.
+     * @param readTimeout Read timeout of the client in milliseconds, <code>-1</code> to use the default one.
+     * @param identity Identity of the client. <code>null</code> to use the JVM default TLS context.
+     */
+    static void apply(final BindingProvider port, final int connectTimeout, final int readTimeout, final ClientIdentity identity) {
+
+        REQUESTS.incrementAndGet();
+
+        Map<String, Object> context = port.getRequestContext();
+
+        int connect = connectTimeout < 0 ? defaultConnectTimeout : connectTimeout;
+        int read = readTimeout < 0 ? defaultReadTimeout : readTimeout;
+        SSLSocketFactory factory;
+        if (identity == null) {
+            factory = getSocketFactory();
+        } else {
+            factory = identity.getSocketFactory();
+        }
+
+        for (String property : CONNECT_TIMEOUT_PROPERTIES) {
+            context.put(property, Integer.valueOf(connect));
+        }
+
+        for (String property : READ_TIMEOUT_PROPERTIES) {
+            context.put(property, Integer.valueOf(read));
+        }
+
+        for (String property : SSL_SOCKET_FACTORY_PROPERTIES) {
+            context.put(property, factory);
+        }
+    }
+
+    /**
+     * Returns a factory that counts the connections and handshakes of the sockets created by the given one.
+     * @param factory Factory that creates the sockets.
+     * @return Counting factory.
+     */
+    static SSLSocketFactory wrap(final SSLSocketFactory factory) {
+
+        return new CountingSocketFactory(factory);
+    }
+
+    /**
+     * Returns the TLS socket factory shared by all the ports without identity. It wraps the JVM default factory.
+     * @return Shared TLS socket factory.
+     */
+    private static synchronized SSLSocketFactory getSocketFactory() {
+
+        if (socketFactory == null) {
+            socketFactory = new CountingSocketFactory(HttpsURLConnection.getDefaultSSLSocketFactory());
+        }
+
+        return socketFactory;
+    }
+
+    /**
+     * Returns the client session context of the JVM default TLS context.
+     * @return Client session context, <code>null</code> if there is no default TLS context.
+     */
+    private static SSLSessionContext getClientSessionContext() {
+
+        SSLSessionContext retValue = null;
+
+        try {
+            retValue = SSLContext.getDefault().getClientSessionContext();
+        } catch (NoSuchAlgorithmException e) {
+
+            /* No TLS available, nothing to configure. */
+            retValue = null;
+        }
+
+        return retValue;
+    }
+
+    /**
+     * TLS socket factory that counts the connections and handshakes of the sockets created by another factory.
+     */
+    private static final class CountingSocketFactory extends SSLSocketFactory {
+
+        /** Factory that creates the sockets. */
+        private final SSLSocketFactory delegate;
+
+        /**
+         * Creates a new factory.
+         * @param factory Factory that creates the sockets.
+         */
+        CountingSocketFactory(final SSLSocketFactory factory) {
+
+            delegate = factory;
+        }
+
+        /**
+         * Returns the cipher suites enabled by default.
+         * @return Cipher suites of the wrapped factory.
+         */
+        @Override
+        public String[] getDefaultCipherSuites() {
+
+            return delegate.getDefaultCipherSuites();
+        }
+
+        /**
+         * Returns the supported cipher suites.
+         * @return Cipher suites of the wrapped factory.
+         */
+        @Override
+        public String[] getSupportedCipherSuites() {
+
+            return delegate.getSupportedCipherSuites();
+        }
+
+        /**
+         * Creates an unconnected socket.
+         * @return New socket.
+         * @throws IOException If the socket cannot be created.
+         */
+        @Override
+        public Socket createSocket() throws IOException {
+
+            return track(delegate.createSocket());
+        }
+
+        /**
+         * Creates a TLS socket over an existing socket.
+         * @param socket Existing socket.
+         * @param host Server host.
+         * @param port Server port.
+         * @param autoClose Whether the existing socket is closed with the new one.
+         * @return New socket.
+         * @throws IOException If the socket cannot be created.
+         */
+        @Override
+        public Socket createSocket(final Socket socket, final String host, final int port, final boolean autoClose) throws IOException {
+
+            return track(delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        /**
+         * Creates a socket connected to the given host.
+         * @param host Server host.
+         * @param port Server port.
+         * @return New socket.
+         * @throws IOException If the socket cannot be created.
+         */
+        @Override
+        public Socket createSocket(final String host, final int port) throws IOException {
+
+            return track(delegate.createSocket(host, port));
+        }
+
+        /**
+         * Creates a socket connected to the given host.
+         * @param host Server host.
+         * @param port Server port.
+         * @param localHost Local address.
+         * @param localPort Local port.
+         * @return New socket.
+         * @throws IOException If the socket cannot be created.
+         */
+        @Override
+        public Socket createSocket(final String host, final int port, final InetAddress localHost, final int localPort) throws IOException {
+
+            return track(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        /**
+         * Creates a socket connected to the given address.
+         * @param host Server address.
+         * @param port Server port.
+         * @return New socket.
+         * @throws IOException If the socket cannot be created.
+         */
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) throws IOException {
+
+            return track(delegate.createSocket(host, port));
+        }
+
+        /**
+         * Creates a socket connected to the given address.
+         * @param address Server address.
+         * @param port Server port.
+         * @param localAddress Local address.
+         * @param localPort Local port.
+         * @return New socket.
+         * @throws IOException If the socket cannot be created.
+         */
+        @Override
+        public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress, final int localPort) throws IOException {
+
+            return track(delegate.createSocket(address, port, localAddress, localPort));
+        }
+
+        /**
+         * Counts the given socket and its handshakes. A handshake resumed a previous session if the session
+         * was created before the socket.
+         * @param socket New socket.
+         * @return The same socket.
+         */
+        private static Socket track(final Socket socket) {
+
+            if (socket instanceof SSLSocket) {
+                CONNECTIONS.incrementAndGet();
+
+                final long created = System.currentTimeMillis();
+                ((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+
+                    @Override
+                    public void handshakeCompleted(final HandshakeCompletedEvent event) {
+
+                        if (event.getSession().getCreationTime() < created) {
+                            RESUMED_HANDSHAKES.incrementAndGet();
+                        } else {
+                            FULL_HANDSHAKES.incrementAndGet();
+                        }
+                    }
+                });
+            }
+
+            return socket;
+        }
+    }
+}
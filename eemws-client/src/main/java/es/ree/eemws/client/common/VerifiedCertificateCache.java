@@ -0,0 +1,367 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dom.DOMStructure;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.keyinfo.X509Data;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Bounded cache of the certificates whose chain has already been validated when verifying the signature of
+ * a response. The server signs with the same certificate for days, so once its chain has been validated
+ * the following responses signed with it only need the cryptographic check of their signature.
+ * A certificate is validated again from scratch (so that its revocation is checked again) after the refresh
+ * interval and it is never used after it expires. Any response that cannot be verified with a cached
+ * certificate, or whose signature does not cover the whole content, is verified from scratch.
+ * Size and refresh interval can be set with system properties.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class VerifiedCertificateCache {
+
+    /** System property name that sets the max number of cached certificates, <code>0</code> disables the cache. */
+    private static final String CACHE_SIZE_KEY = "SIGNATURE_CACHE_SIZE"; //$NON-NLS-1$
+
+    /** System property name that sets the seconds after which a cached certificate is validated again. */
+    private static final String REFRESH_INTERVAL_KEY = "SIGNATURE_CACHE_REFRESH_S"; //$NON-NLS-1$
+
+    /** Default max number of cached certificates. */
+    private static final int DEFAULT_CACHE_SIZE = 32;
+
+    /** Default seconds after which a cached certificate is validated again. */
+    private static final long DEFAULT_REFRESH_INTERVAL = 3600;
+
+    /** Local name of the signature element. */
+    private static final String SIGNATURE_TAG = "Signature"; //$NON-NLS-1$
+
+    /** Mechanism of the XML signature factory. */
+    private static final String DOM_MECHANISM = "DOM"; //$NON-NLS-1$
+
+    /** Validation context property that rejects insecure signatures. */
+    private static final String SECURE_VALIDATION = "org.jcp.xml.dsig.secureValidation"; //$NON-NLS-1$
+
+    /** Transforms allowed in the reference of a signature verified with a cached certificate. */
+    private static final Set<String> ALLOWED_TRANSFORMS = new HashSet<>(Arrays.asList(Transform.ENVELOPED,
+            CanonicalizationMethod.INCLUSIVE, CanonicalizationMethod.INCLUSIVE_WITH_COMMENTS,
+            CanonicalizationMethod.EXCLUSIVE, CanonicalizationMethod.EXCLUSIVE_WITH_COMMENTS));
+
+    /** Algorithm of the certificate fingerprint. */
+    private static final String FINGERPRINT_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    /** Log (only for debug). */
+    private static final Logger LOGGER = Logger.getLogger(VerifiedCertificateCache.class.getName());
+
+    /** Factory of the XML signatures. */
+    private static final XMLSignatureFactory SIGNATURE_FACTORY = XMLSignatureFactory.getInstance(DOM_MECHANISM);
+
+    /** Factory of the documents where the signed content is copied. */
+    private static final DocumentBuilderFactory DOCUMENT_FACTORY = DocumentBuilderFactory.newInstance();
+
+    /** Max number of cached certificates. */
+    private static volatile int maxSize = Integer.getInteger(CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE);
+
+    /** Milliseconds after which a cached certificate is validated again. */
+    private static volatile long refreshInterval = TimeUnit.SECONDS.toMillis(Long.getLong(REFRESH_INTERVAL_KEY, DEFAULT_REFRESH_INTERVAL));
+
+    /** Validated certificates by fingerprint, least recently used first. Value is the time until they can be used. */
+    private static final Map<String, Long> VERIFIED = new LinkedHashMap<String, Long>(DEFAULT_CACHE_SIZE, 0.75f, true) {
+
+        /** Serial version UID. */
+        private static final long serialVersionUID = 4188227126389117925L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+
+            return size() > maxSize;
+        }
+    };
+
+    /** Number of signatures verified with a cached certificate. */
+    private static final AtomicLong HITS = new AtomicLong();
+
+    /** Number of signatures that had to be verified from scratch. */
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    static {
+        DOCUMENT_FACTORY.setNamespaceAware(true);
+    }
+
+    /**
+     * Constructor.
+     * Utility classes should not have a public constructor.
+     */
+    private VerifiedCertificateCache() {
+
+        /* Utility classes should not have a public constructor. */
+    }
+
+    /**
+     * Sets the max number of cached certificates.
+     * @param size Max number of cached certificates, <code>0</code> disables the cache.
+     */
+    public static void setMaxSize(final int size) {
+
+        synchronized (VERIFIED) {
+            maxSize = Math.max(0, size);
+            VERIFIED.clear();
+        }
+    }
+
+    /**
+     * Sets the interval after which a cached certificate is validated again from scratch.
+     * @param seconds Refresh interval in seconds.
+     */
+    public static void setRefreshInterval(final long seconds) {
+
+        refreshInterval = TimeUnit.SECONDS.toMillis(Math.max(0, seconds));
+    }
+
+    /**
+     * Removes all the cached certificates, so that they are validated again from scratch.
+     */
+    public static void clear() {
+
+        synchronized (VERIFIED) {
+            VERIFIED.clear();
+        }
+    }
+
+    /**
+     * Returns the number of signatures verified with a cached certificate.
+     * @return Number of cache hits.
+     */
+    public static long getHitCount() {
+
+        return HITS.get();
+    }
+
+    /**
+     * Returns the number of signatures that had to be verified from scratch.
+     * @return Number of cache misses.
+     */
+    public static long getMissCount() {
+
+        return MISSES.get();
+    }
+
+    /**
+     * Adds a certificate whose chain has just been validated.
+     * @param certificate Validated certificate.
+     */
+    static void add(final X509Certificate certificate) {
+
+        if (certificate != null && maxSize > 0) {
+            try {
+                long until = Math.min(System.currentTimeMillis() + refreshInterval, certificate.getNotAfter().getTime());
+                String fingerprint = getFingerprint(certificate);
+                synchronized (VERIFIED) {
+                    VERIFIED.put(fingerprint, until);
+                }
+            } catch (GeneralSecurityException e) {
+                LOGGER.log(Level.FINE, "Unable to cache the certificate.", e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Verifies the signature of the given content if it was signed with a cached certificate.
+     * Only the signature is checked, the chain of the certificate was already validated.
+     * @param content Signed content (the element of the body).
+     * @return Signature certificate if the signature is valid and its certificate is cached.
+     * <code>null</code> if the content must be verified from scratch.
+     */
+    static X509Certificate verify(final Node content) {
+
+        X509Certificate retValue = null;
+
+        if (content instanceof Element && maxSize > 0) {
+            try {
+
+                /* The signature is read in place, the content is only copied if the certificate is cached. */
+                NodeList signatures = ((Element) content).getElementsByTagNameNS(XMLSignature.XMLNS, SIGNATURE_TAG);
+                if (signatures.getLength() == 1) {
+                    XMLSignature signature = SIGNATURE_FACTORY.unmarshalXMLSignature(new DOMStructure(signatures.item(0)));
+                    X509Certificate certificate = getCertificate(signature.getKeyInfo());
+
+                    if (certificate != null && isWholeContentSigned(signature) && isVerified(certificate)) {
+
+                        /* The reference (URI="") covers the content as a document of its own, as it was signed. */
+                        Document document = newDocument();
+                        document.appendChild(document.importNode(content, true));
+                        Node copy = document.getElementsByTagNameNS(XMLSignature.XMLNS, SIGNATURE_TAG).item(0);
+
+                        DOMValidateContext context = new DOMValidateContext(certificate.getPublicKey(), copy);
+                        context.setProperty(SECURE_VALIDATION, Boolean.TRUE);
+                        if (SIGNATURE_FACTORY.unmarshalXMLSignature(context).validate(context)) {
+                            retValue = certificate;
+                        }
+                    }
+                }
+
+            } catch (ParserConfigurationException | MarshalException | XMLSignatureException | GeneralSecurityException e) {
+                LOGGER.log(Level.FINE, "Unable to verify the signature with a cached certificate.", e); //$NON-NLS-1$
+            }
+
+            if (retValue == null) {
+                MISSES.incrementAndGet();
+            } else {
+                HITS.incrementAndGet();
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Checks whether the given signature covers the whole content, as the server signs: exactly one reference
+     * to the whole document (<code>URI=""</code>) with the enveloped signature transform and no transform other
+     * than canonicalizations, which could leave part of the content out of the signature.
+     * @param signature Signature of the content.
+     * @return <code>true</code> if the signature covers the whole content.
+     */
+    private static boolean isWholeContentSigned(final XMLSignature signature) {
+
+        boolean retValue = false;
+        List<?> references = signature.getSignedInfo().getReferences();
+
+        if (references.size() == 1 && "".equals(((Reference) references.get(0)).getURI())) { //$NON-NLS-1$
+            boolean onlyAllowed = true;
+            for (Object transform : ((Reference) references.get(0)).getTransforms()) {
+                String algorithm = ((Transform) transform).getAlgorithm();
+                retValue = retValue || Transform.ENVELOPED.equals(algorithm);
+                onlyAllowed = onlyAllowed && ALLOWED_TRANSFORMS.contains(algorithm);
+            }
+
+            retValue = retValue && onlyAllowed;
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Checks whether the given certificate is cached and can still be used.
+     * @param certificate Certificate of a signature.
+     * @return <code>true</code> if the certificate is cached and neither its refresh interval nor its validity has passed.
+     * @throws GeneralSecurityException If the fingerprint of the certificate cannot be calculated.
+     */
+    private static boolean isVerified(final X509Certificate certificate) throws GeneralSecurityException {
+
+        String fingerprint = getFingerprint(certificate);
+        boolean retValue;
+
+        synchronized (VERIFIED) {
+            Long until = VERIFIED.get(fingerprint);
+            retValue = until != null && System.currentTimeMillis() < until;
+            if (until != null && !retValue) {
+                VERIFIED.remove(fingerprint);
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Returns the first certificate of the given key info.
+     * @param keyInfo Key info of a signature.
+     * @return First certificate. <code>null</code> if the key info has no certificate.
+     */
+    private static X509Certificate getCertificate(final KeyInfo keyInfo) {
+
+        X509Certificate retValue = null;
+
+        if (keyInfo != null) {
+            for (Object info : (List<?>) keyInfo.getContent()) {
+                if (retValue == null && info instanceof X509Data) {
+                    for (Object data : (List<?>) ((X509Data) info).getContent()) {
+                        if (retValue == null && data instanceof X509Certificate) {
+                            retValue = (X509Certificate) data;
+                        }
+                    }
+                }
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Returns the fingerprint of the given certificate.
+     * @param certificate Certificate.
+     * @return Hexadecimal SHA-256 digest of the encoded certificate.
+     * @throws GeneralSecurityException If the certificate cannot be encoded.
+     */
+    private static String getFingerprint(final X509Certificate certificate) throws GeneralSecurityException {
+
+        byte[] digest = MessageDigest.getInstance(FINGERPRINT_ALGORITHM).digest(certificate.getEncoded());
+        StringBuilder retValue = new StringBuilder();
+        for (byte b : digest) {
+            retValue.append(String.format("%02x", b)); //$NON-NLS-1$
+        }
+
+        return retValue.toString();
+    }
+
+    /**
+     * Creates a new empty document.
+     * @return New document.
+     * @throws ParserConfigurationException If the document builder cannot be created.
+     */
+    private static Document newDocument() throws ParserConfigurationException {
+
+        DocumentBuilder builder;
+        synchronized (DOCUMENT_FACTORY) {
+            builder = DOCUMENT_FACTORY.newDocumentBuilder();
+        }
+
+        return builder.newDocument();
+    }
+}
@@ -21,16 +21,25 @@
 
 package es.ree.eemws.client.get;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import ch.iec.tc57._2011.schema.message.RequestMessage;
 import ch.iec.tc57._2011.schema.message.ResponseMessage;
 import es.ree.eemws.client.common.ParentClient;
+import es.ree.eemws.core.utils.error.EnumErrorCatalog;
 import es.ree.eemws.core.utils.iec61968100.EnumFilterElement;
 import es.ree.eemws.core.utils.iec61968100.EnumNoun;
 import es.ree.eemws.core.utils.iec61968100.EnumVerb;
+import es.ree.eemws.core.utils.iec61968100.MessageMetaData;
 import es.ree.eemws.core.utils.iec61968100.MessageUtil;
 import es.ree.eemws.core.utils.operations.HandlerException;
 import es.ree.eemws.core.utils.operations.get.GetOperationException;
@@ -98,6 +107,22 @@ public final class GetMessage extends ParentClient {
         return get(null, null, code, null);
     }
 
+    /**
+     * Gets the message with the given code.
+     * @param code Message's code.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @return Response message wrapper with the server's response.
+     * @throws GetOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public RetrievedMessage get(final Long code, final MessageMetaData metaData) throws GetOperationException {
+
+        Map<String, String> msgOptions = new HashMap<>();
+        msgOptions.put(EnumFilterElement.CODE.toString(), code.toString());
+
+        return get(msgOptions, metaData);
+    }
+
     /**
      * Gets the message from the queue.
      * @param queue Queue value.
@@ -118,19 +143,164 @@ public final class GetMessage extends ParentClient {
      * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
      */
     public RetrievedMessage get(final Map<String, String> msgOptions) throws GetOperationException {
+
+        return get(msgOptions, newMessageMetaData());
+    }
+
+    /**
+     * Gets the message using the given parameters.
+     * This method can be used concurrently by several threads since the call's metadata is stored in the given object.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @return Response message wrapper with the server's response.
+     * @throws GetOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public RetrievedMessage get(final Map<String, String> msgOptions, final MessageMetaData metaData) throws GetOperationException {
         RetrievedMessage retValue = new RetrievedMessage();
+        retValue.setMessage(sendGet(msgOptions, metaData, retValue));
+        
+        return retValue;
+    }
+
+    /**
+     * Gets the message with the given code writing its payload into the given file.
+     * The payload is decoded and unzipped as it is written, so it is never held in memory.
+     * @param code Message's code.
+     * @param path File where the payload is written. Binary payloads are written as they are, XML payloads as UTF-8.
+     * @return Response message wrapper with the server's response (without payload).
+     * @throws GetOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * or if the file cannot be written.
+     */
+    public RetrievedMessage getTo(final Long code, final Path path) throws GetOperationException {
+
+        Map<String, String> msgOptions = new HashMap<>();
+        msgOptions.put(EnumFilterElement.CODE.toString(), code.toString());
+
+        return getTo(msgOptions, new MessageMetaData(), path);
+    }
+
+    /**
+     * Gets the message with the given code writing its payload into the given stream.
+     * The payload is decoded and unzipped as it is written, so it is never held in memory.
+     * @param code Message's code.
+     * @param out Stream where the payload is written. Binary payloads are written as they are, XML payloads as UTF-8.
+     * The stream is not closed.
+     * @return Response message wrapper with the server's response (without payload).
+     * @throws GetOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * or if the payload cannot be written.
+     */
+    public RetrievedMessage getTo(final Long code, final OutputStream out) throws GetOperationException {
+
+        Map<String, String> msgOptions = new HashMap<>();
+        msgOptions.put(EnumFilterElement.CODE.toString(), code.toString());
+
+        return getTo(msgOptions, new MessageMetaData(), out);
+    }
+
+    /**
+     * Gets the message using the given parameters writing its payload into the given file.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @param path File where the payload is written. Binary payloads are written as they are, XML payloads as UTF-8.
+     * @return Response message wrapper with the server's response (without payload).
+     * @throws GetOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * or if the file cannot be written.
+     * @see #getTo(Map, MessageMetaData, OutputStream)
+     */
+    public RetrievedMessage getTo(final Map<String, String> msgOptions, final MessageMetaData metaData, final Path path) throws GetOperationException {
+
+        RetrievedMessage retValue = null;
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+
+            retValue = getTo(msgOptions, metaData, out);
+
+        } catch (IOException e) {
+            throw new GetOperationException(EnumErrorCatalog.ERR_GET_015, e);
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Gets the message using the given parameters writing its payload into the given stream.
+     * The payload is decoded and unzipped as it is written, so it is never held in memory.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @param out Stream where the payload is written. Binary payloads are written as they are, XML payloads as UTF-8.
+     * The stream is not closed.
+     * @return Response message wrapper with the server's response (without payload).
+     * @throws GetOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * or if the payload cannot be written.
+     */
+    public RetrievedMessage getTo(final Map<String, String> msgOptions, final MessageMetaData metaData, final OutputStream out) throws GetOperationException {
+
+        RetrievedMessage retValue = new RetrievedMessage();
+        retValue.setMessage(sendGet(msgOptions, metaData, retValue), out);
+
+        return retValue;
+    }
+
+    /**
+     * Gets the message using the given parameters writing its payload into the given file only if it is binary.
+     * Binary payloads are decoded as they are written, so they are never held in memory. XML payloads are kept
+     * in memory (see {@link RetrievedMessage#getStringPayload()}) and the file is not written.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @param path File where the payload is written if it is binary.
+     * @return Response message wrapper with the server's response (without payload if it is binary).
+     * @throws GetOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * or if the file cannot be written.
+     */
+    public RetrievedMessage getBinaryTo(final Map<String, String> msgOptions, final MessageMetaData metaData, final Path path) throws GetOperationException {
+
+        RetrievedMessage retValue = new RetrievedMessage();
+        ResponseMessage response = sendGet(msgOptions, metaData, retValue);
+
+        if (RetrievedMessage.isBinary(response)) {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+
+                retValue.setMessage(response, out);
+
+            } catch (IOException e) {
+                throw new GetOperationException(EnumErrorCatalog.ERR_GET_015, e);
+            }
+        } else {
+            retValue.setMessage(response);
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Sends the get request with the given parameters.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call.
+     * @param message Message wrapper, its identification is set with the request values.
+     * @return Server's response.
+     * @throws GetOperationException If the request is not valid, if it cannot be sent or if the response is not valid.
+     */
+    private ResponseMessage sendGet(final Map<String, String> msgOptions, final MessageMetaData metaData, 
+            final RetrievedMessage message) throws GetOperationException {
+
+        ResponseMessage retValue = null;
 
         try {
             
-            retValue.setMsgIdentification(msgOptions.get(EnumFilterElement.MESSAGE_IDENTIFICATION.toString()));
-            retValue.setMsgVersion(msgOptions.get(EnumFilterElement.MESSAGE_VERSION.toString()));
-            retValue.setMsgIdentification(msgOptions.get(EnumFilterElement.CODE.toString()));
+            message.setMsgIdentification(msgOptions.get(EnumFilterElement.MESSAGE_IDENTIFICATION.toString()));
+            message.setMsgVersion(msgOptions.get(EnumFilterElement.MESSAGE_VERSION.toString()));
+            message.setMsgIdentification(msgOptions.get(EnumFilterElement.CODE.toString()));
    
             RequestMessage requestMessage = MessageUtil.createRequestWithOptions(EnumVerb.GET, EnumNoun.ANY, msgOptions);
             GetRequestMessageValidator.validate(requestMessage);
-            ResponseMessage response = sendMessage(requestMessage);
-            validateResponse(response, false);
-            retValue.setMessage(response);
+            retValue = sendMessage(requestMessage, metaData);
+            validateResponse(retValue, false);
 
         } catch (HandlerException e) {
             throw new GetOperationException(e);
@@ -171,4 +341,53 @@ public final class GetMessage extends ParentClient {
 
         return get(msgOptions);
     }
+
+    /**
+     * Gets asynchronously the message with the given code.
+     * @param code Message's code.
+     * @return Future with the response message wrapper. If the operation fails, <code>Future.get</code> throws an
+     * <code>ExecutionException</code> whose cause is the <code>GetOperationException</code>.
+     * @see #get(Long)
+     */
+    public Future<RetrievedMessage> getAsync(final Long code) {
+
+        return getAsync(code, new MessageMetaData());
+    }
+
+    /**
+     * Gets asynchronously the message with the given code.
+     * @param code Message's code.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @return Future with the response message wrapper. If the operation fails, <code>Future.get</code> throws an
+     * <code>ExecutionException</code> whose cause is the <code>GetOperationException</code>.
+     * @see #get(Long, MessageMetaData)
+     */
+    public Future<RetrievedMessage> getAsync(final Long code, final MessageMetaData metaData) {
+
+        Map<String, String> msgOptions = new HashMap<>();
+        msgOptions.put(EnumFilterElement.CODE.toString(), code.toString());
+
+        return getAsync(msgOptions, metaData);
+    }
+
+    /**
+     * Gets asynchronously the message using the given parameters.
+     * The calling thread is blocked while the maximum number of requests in flight is reached.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @return Future with the response message wrapper. If the operation fails, <code>Future.get</code> throws an
+     * <code>ExecutionException</code> whose cause is the <code>GetOperationException</code>.
+     * @see #get(Map, MessageMetaData)
+     */
+    public Future<RetrievedMessage> getAsync(final Map<String, String> msgOptions, final MessageMetaData metaData) {
+
+        return submit(new Callable<RetrievedMessage>() {
+
+            @Override
+            public RetrievedMessage call() throws GetOperationException {
+
+                return get(msgOptions, metaData);
+            }
+        });
+    }
 }
@@ -22,9 +22,12 @@
 package es.ree.eemws.client.get;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.bind.DatatypeConverter;
 import javax.xml.parsers.ParserConfigurationException;
@@ -32,6 +35,7 @@ import javax.xml.transform.TransformerException;
 
 import ch.iec.tc57._2011.schema.message.ReplyType.ID;
 import ch.iec.tc57._2011.schema.message.ResponseMessage;
+import es.ree.eemws.client.common.Base64InputStream;
 import es.ree.eemws.core.utils.error.EnumErrorCatalog;
 import es.ree.eemws.core.utils.file.GZIPUtil;
 import es.ree.eemws.core.utils.iec61968100.EnumMessageFormat;
@@ -52,6 +56,9 @@ public final class RetrievedMessage {
     /** Identification - Version character separator. Used to create a file name with the format id.version */
     private static final String VERSION_SEPARATOR = "."; //$NON-NLS-1$
 
+    /** Size of the buffer used to write the payload into a stream. */
+    private static final int BUFFER_SIZE = 8192;
+
     /** Binary content as byte[]. */
     private byte[] binaryContent;
 
@@ -76,6 +83,17 @@ public final class RetrievedMessage {
         return format.equals(EnumMessageFormat.BINARY);
     }
 
+    /**
+     * Returns whether the given response has a binary payload.
+     * @param response Response of a get operation.
+     * @return <code>true</code> if the payload is compressed and its format is binary.
+     */
+    static boolean isBinary(final ResponseMessage response) {
+
+        return response.getHeader().getNoun().equals(EnumNoun.COMPRESSED.toString())
+                && EnumMessageFormat.BINARY.equals(EnumMessageFormat.fromString(response.getPayload().getFormat()));
+    }
+
     /**
      * Returns this message file name. If the message was retrieved as binary, the filename
      * will be the value of the reply's ID value. Otherwise, the get's filter parameters will be used.
@@ -159,44 +177,65 @@ public final class RetrievedMessage {
 
             if (response.getHeader().getNoun().equals(EnumNoun.COMPRESSED.toString())) {
 
-                String msgFormat = response.getPayload().getFormat();
-                if (msgFormat != null) {
-                    format = EnumMessageFormat.fromString(msgFormat);
-
-                    if (format == null) {
-                        throw new GetOperationException(EnumErrorCatalog.ERR_GET_014, msgFormat, EnumMessageFormat.getList());
-                    }
-                }
+                readCompressedHeader(response);
 
                 binaryContent = DatatypeConverter.parseBase64Binary(response.getPayload().getCompressed());
 
                 /* Hide binary content if the payload is xml. */
-                if (msgFormat == null || format.equals(EnumMessageFormat.XML)) {
+                if (format.equals(EnumMessageFormat.XML)) {
                     xmlContent = new String(GZIPUtil.uncompress(binaryContent), StandardCharsets.UTF_8);
                     binaryContent = null;
                 }
 
-                List<ID> lsIds = response.getReply().getIDS();
-                if (lsIds != null) {
-                    boolean loop = true;
-                    Iterator<ID> ids = lsIds.iterator();
-                    while (ids.hasNext() && loop) {
-                        ID id = ids.next();
-                        if (EnumMessageFormat.BINARY_FILENAME_ID.equals(id.getIdType())) {
-                            fileName = id.getValue();
-                            loop = false;
-                        }
-                    }
+            } else {
+                xmlContent = MessageUtil.responsePayload2String(response);
+            }
+
+        } catch (IOException e) {
+            throw new GetOperationException(EnumErrorCatalog.ERR_GET_015, e);
+        } catch (TransformerException | ParserConfigurationException e) {
+            throw new GetOperationException(EnumErrorCatalog.ERR_GET_015, e);
+        }
+    }
+
+    /**
+     * Sets this class values from a ResponseMessage object writing the payload into the given stream instead of
+     * keeping it in memory. Compressed payloads are decoded and unzipped as they are written.
+     * Binary payloads are written as they are, XML payloads are written as UTF-8.
+     * Note that {@link #getBinaryPayload()}, {@link #getStringPayload()} and {@link #getPrettyPayload()} return
+     * <code>null</code> for messages set with this method. The stream is not closed.
+     * @param response ResponseMessage object with payload or binary values.
+     * @param out Stream where the payload is written.
+     * @throws GetOperationException If the BINARY response has an invalid format, if it cannot be unzipped or
+     * if the payload cannot be written.
+     */
+    public void setMessage(final ResponseMessage response, final OutputStream out) throws GetOperationException {
+
+        respMess = response;
+
+        try {
+
+            if (response.getHeader().getNoun().equals(EnumNoun.COMPRESSED.toString())) {
+
+                readCompressedHeader(response);
+
+                InputStream in = new Base64InputStream(response.getPayload().getCompressed());
+                if (format.equals(EnumMessageFormat.XML)) {
+                    in = new GZIPInputStream(in, BUFFER_SIZE);
                 }
 
-                if (isBinary() && fileName == null) {
-                    throw new GetOperationException(EnumErrorCatalog.ERR_GET_018);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, len);
                 }
 
             } else {
-                xmlContent = MessageUtil.responsePayload2String(response);
+                out.write(MessageUtil.responsePayload2String(response).getBytes(StandardCharsets.UTF_8));
             }
 
+            out.flush();
+
         } catch (IOException e) {
             throw new GetOperationException(EnumErrorCatalog.ERR_GET_015, e);
         } catch (TransformerException | ParserConfigurationException e) {
@@ -204,4 +243,38 @@ public final class RetrievedMessage {
         }
     }
 
+    /**
+     * Reads the format and the file name of a compressed response.
+     * @param response ResponseMessage object with compressed payload.
+     * @throws GetOperationException If the format is not valid or if a binary response has no file name.
+     */
+    private void readCompressedHeader(final ResponseMessage response) throws GetOperationException {
+
+        String msgFormat = response.getPayload().getFormat();
+        if (msgFormat != null) {
+            format = EnumMessageFormat.fromString(msgFormat);
+
+            if (format == null) {
+                throw new GetOperationException(EnumErrorCatalog.ERR_GET_014, msgFormat, EnumMessageFormat.getList());
+            }
+        }
+
+        List<ID> lsIds = response.getReply().getIDS();
+        if (lsIds != null) {
+            boolean loop = true;
+            Iterator<ID> ids = lsIds.iterator();
+            while (ids.hasNext() && loop) {
+                ID id = ids.next();
+                if (EnumMessageFormat.BINARY_FILENAME_ID.equals(id.getIdType())) {
+                    fileName = id.getValue();
+                    loop = false;
+                }
+            }
+        }
+
+        if (isBinary() && fileName == null) {
+            throw new GetOperationException(EnumErrorCatalog.ERR_GET_018);
+        }
+    }
+
 }
@@ -27,10 +27,15 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
+import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
 
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import _504.iec62325.messages._1._0.MessageList;
 import _504.iec62325.messages._1._0.MessageList.Message;
@@ -44,11 +49,11 @@ import es.ree.eemws.core.utils.iec61968100.EnumFilterElement;
 import es.ree.eemws.core.utils.iec61968100.EnumIntervalTimeType;
 import es.ree.eemws.core.utils.iec61968100.EnumNoun;
 import es.ree.eemws.core.utils.iec61968100.EnumVerb;
+import es.ree.eemws.core.utils.iec61968100.MessageMetaData;
 import es.ree.eemws.core.utils.iec61968100.MessageUtil;
 import es.ree.eemws.core.utils.operations.HandlerException;
 import es.ree.eemws.core.utils.operations.list.ListOperationException;
 import es.ree.eemws.core.utils.operations.list.ListRequestMessageValidator;
-import es.ree.eemws.core.utils.xml.XMLElementUtil;
 
 /**
  * Obtains a list of available messages according to filters.
@@ -64,6 +69,9 @@ public final class ListMessages extends ParentClient {
     /** List response messages signature are not validated by default. */
     private static final boolean VERIFY_RESPONSE_SIGNATURE = false;
 
+    /** JAXB context used to read the list elements. Creating a context is expensive, so it is shared. */
+    private static JAXBContext jaxbContext = null;
+
     /**
      * Constructor.
      */
@@ -144,6 +152,23 @@ public final class ListMessages extends ParentClient {
         return list(code, null, null, null);
     }
 
+    /**
+     * Obtains a list of available messages with an internal identification number higher than the provided code.
+     * @param code Specifies that the list of messages returned should only include messages with an internal
+     * identification number higher than the provided code.
+     * @param metaData Metadata object for this call, holds the status and timestamp of the response.
+     * @return A list of <code>MessageListEntry</code> elements.
+     * @throws ListOperationException If the retrieved message has an invalid format or the application cannot handle it 
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public List<MessageListEntry> list(final Long code, final MessageMetaData metaData) throws ListOperationException {
+
+        Map<String, String> msgOptions = new HashMap<>();
+        msgOptions.put(EnumFilterElement.CODE.toString(), Long.toString(code));
+
+        return list(msgOptions, metaData);
+    }
+
     /**
      * Obtains a list of available messages for the client according to a given filter.
      * @param code Specifies that the list of messages returned should only include messages with an internal
@@ -173,14 +198,132 @@ public final class ListMessages extends ParentClient {
      */
     public List<MessageListEntry> list(final Map<String, String> msgOptions) throws ListOperationException {
 
-        List<MessageListEntry> retValue = null;
+        return list(msgOptions, newMessageMetaData());
+    }
+
+    /**
+     * Obtains a list of available messages for the client according to a given filter.
+     * This method can be used concurrently by several threads since the call's metadata is stored in the given object.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status and timestamp of the response.
+     * @return A list of <code>MessageListEntry</code> elements.
+     * @throws ListOperationException If the retrieved message has an invalid format or the application cannot handle it 
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public List<MessageListEntry> list(final Map<String, String> msgOptions, final MessageMetaData metaData) throws ListOperationException {
+
+        final List<MessageListEntry> retValue = new ArrayList<>();
+
+        list(msgOptions, metaData, new MessageListHandler() {
+
+            @Override
+            public void handle(final MessageListEntry entry) {
+
+                retValue.add(entry);
+            }
+        });
+
+        return retValue;
+    }
+
+    /**
+     * Obtains asynchronously a list of available messages with an internal identification number higher than the provided code.
+     * @param code Specifies that the list of messages returned should only include messages with an internal
+     * identification number higher than the provided code.
+     * @return Future with a list of <code>MessageListEntry</code> elements. If the operation fails, <code>Future.get</code>
+     * throws an <code>ExecutionException</code> whose cause is the <code>ListOperationException</code>.
+     * @see #list(Long)
+     */
+    public Future<List<MessageListEntry>> listAsync(final Long code) {
+
+        Map<String, String> msgOptions = new HashMap<>();
+        msgOptions.put(EnumFilterElement.CODE.toString(), Long.toString(code));
+
+        return listAsync(msgOptions, new MessageMetaData());
+    }
+
+    /**
+     * Obtains asynchronously a list of available messages for the client according to a given filter.
+     * The calling thread is blocked while the maximum number of requests in flight is reached.
+     * The list is read by {@link #list(Map, MessageMetaData, MessageListHandler)} in the worker thread.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status and timestamp of the response.
+     * @return Future with a list of <code>MessageListEntry</code> elements. If the operation fails, <code>Future.get</code>
+     * throws an <code>ExecutionException</code> whose cause is the <code>ListOperationException</code>.
+     * @see #list(Map, MessageMetaData)
+     */
+    public Future<List<MessageListEntry>> listAsync(final Map<String, String> msgOptions, final MessageMetaData metaData) {
+
+        return submit(new Callable<List<MessageListEntry>>() {
+
+            @Override
+            public List<MessageListEntry> call() throws ListOperationException {
+
+                return list(msgOptions, metaData);
+            }
+        });
+    }
+
+    /**
+     * Obtains the available messages with an internal identification number higher than the provided code.
+     * The elements are passed to the given handler as they are read, so the whole list is never kept in memory.
+     * @param code Specifies that the list of messages returned should only include messages with an internal
+     * identification number higher than the provided code.
+     * @param handler Handler that receives each element of the list.
+     * @return Number of elements of the list.
+     * @throws ListOperationException If the retrieved message has an invalid format or the application cannot handle it 
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public int list(final Long code, final MessageListHandler handler) throws ListOperationException {
+
+        return list(code, null, handler);
+    }
+
+    /**
+     * Obtains the available messages of the given type with an internal identification number higher than the provided code.
+     * The type filter is applied by the server, so only the elements of the given type are sent.
+     * The elements are passed to the given handler as they are read, so the whole list is never kept in memory.
+     * @param code Specifies that the list of messages returned should only include messages with an internal
+     * identification number higher than the provided code.
+     * @param msgType Specifies that the list of messages returned should only include messages of the given type. 
+     * <code>null</code> to list messages of any type.
+     * @param handler Handler that receives each element of the list.
+     * @return Number of elements of the list.
+     * @throws ListOperationException If the retrieved message has an invalid format or the application cannot handle it 
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public int list(final Long code, final String msgType, final MessageListHandler handler) throws ListOperationException {
+
+        Map<String, String> msgOptions = new HashMap<>();
+        msgOptions.put(EnumFilterElement.CODE.toString(), Long.toString(code));
+
+        if (msgType != null) {
+            msgOptions.put(EnumFilterElement.MESSAGE_TYPE.toString(), msgType);
+        }
+
+        return list(msgOptions, new MessageMetaData(), handler);
+    }
+
+    /**
+     * Obtains the available messages for the client according to a given filter.
+     * The elements are passed to the given handler as they are read, so the whole list is never kept in memory.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status and timestamp of the response.
+     * @param handler Handler that receives each element of the list.
+     * @return Number of elements of the list.
+     * @throws ListOperationException If the retrieved message has an invalid format or the application cannot handle it 
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public int list(final Map<String, String> msgOptions, final MessageMetaData metaData, final MessageListHandler handler) throws ListOperationException {
+
+        int retValue = 0;
                 
         try {
             RequestMessage requestMessage = MessageUtil.createRequestWithOptions(EnumVerb.GET, EnumNoun.MESSAGE_LIST, msgOptions);
             ListRequestMessageValidator.validate(requestMessage);
-            ResponseMessage response = sendMessage(requestMessage);
+            ResponseMessage response = sendMessage(requestMessage, metaData);
             validateResponse(response, EnumNoun.MESSAGE_LIST.toString());
-            retValue = processPayload(response);
+            retValue = processPayload(response, handler);
 
         } catch (HandlerException e) {
 
@@ -251,63 +394,92 @@ public final class ListMessages extends ParentClient {
     }
 
     /**
-     * Process the list response creating a list of <code>MessageListEntry</code> elements. 
+     * Process the list response passing each element to the given handler.
+     * Each <code>Message</code> element is unmarshalled on its own, so the full <code>MessageList</code>
+     * object is never created.
      * Note that this method does not perform any kind of validation on the returned elements.
      * @param responseMessage Response message from the server with the list values.
-     * @return A list of <code>MessageListEntry</code> elements.
-     * @throws ListOperationException If the method cannot create a <code>MessageList</code> object from the given payload.
+     * @param handler Handler that receives each element of the list.
+     * @return Number of elements of the list.
+     * @throws ListOperationException If the method cannot create a <code>Message</code> object from the given payload.
      */
-    private List<MessageListEntry> processPayload(final ResponseMessage responseMessage) throws ListOperationException {
+    private int processPayload(final ResponseMessage responseMessage, final MessageListHandler handler) throws ListOperationException {
 
-        List<MessageListEntry> listMessageData = new ArrayList<>();
+        int retValue = 0;
 
         try {
 
-            Element message = responseMessage.getPayload().getAnies().get(0);
-            MessageList messageList = (MessageList) XMLElementUtil.element2Obj(message, MessageList.class);
+            Element messageList = responseMessage.getPayload().getAnies().get(0);
+            Unmarshaller unmarshaller = getJAXBContext().createUnmarshaller();
 
-            List<Message> lstMsgs = messageList.getMessages();
+            for (Node node = messageList.getFirstChild(); node != null; node = node.getNextSibling()) {
+                if (node.getNodeType() == Node.ELEMENT_NODE) {
+                    Message msg = unmarshaller.unmarshal(node, Message.class).getValue();
+                    handler.handle(toMessageListEntry(msg));
+                    retValue++;
+                }
+            }
 
-            for (Message msg : lstMsgs) {
+        } catch (JAXBException ex) {
 
-                MessageListEntry messageData = new MessageListEntry();
-                messageData.setCode(msg.getCode());
-                messageData.setMessageIdentification(msg.getMessageIdentification());
+            throw new ListOperationException(EnumErrorCatalog.ERR_LST_019, ex, ex.getMessage());
+        }
 
-                BigInteger version = msg.getMessageVersion();
-                if (version != null) {
-                    messageData.setVersion(version);
-                }
+        return retValue;
+    }
 
-                StatusType status = msg.getStatus();
-                if (status != null) {
-                    messageData.setStatus(status.value());
-                }
+    /**
+     * Creates a <code>MessageListEntry</code> object with the values of the given list element.
+     * @param msg List element.
+     * @return <code>MessageListEntry</code> object with the values of the given list element.
+     */
+    private MessageListEntry toMessageListEntry(final Message msg) {
 
-                TimeIntervalType interval = msg.getApplicationTimeInterval();
-                if (interval != null) {
+        MessageListEntry messageData = new MessageListEntry();
+        messageData.setCode(msg.getCode());
+        messageData.setMessageIdentification(msg.getMessageIdentification());
 
-                    if (interval.getStart() != null) {
-                        messageData.setApplicationStartTime(interval.getStart().toGregorianCalendar());
-                    }
+        BigInteger version = msg.getMessageVersion();
+        if (version != null) {
+            messageData.setVersion(version);
+        }
 
-                    if (interval.getEnd() != null) {
-                        messageData.setApplicationEndTime(interval.getEnd().toGregorianCalendar());
-                    }
-                }
+        StatusType status = msg.getStatus();
+        if (status != null) {
+            messageData.setStatus(status.value());
+        }
 
-                messageData.setServerTimestamp(msg.getServerTimestamp().toGregorianCalendar());
-                messageData.setType(msg.getType());
-                messageData.setOwner(msg.getOwner());
+        TimeIntervalType interval = msg.getApplicationTimeInterval();
+        if (interval != null) {
 
-                listMessageData.add(messageData);
+            if (interval.getStart() != null) {
+                messageData.setApplicationStartTime(interval.getStart().toGregorianCalendar());
             }
 
-        } catch (JAXBException ex) {
+            if (interval.getEnd() != null) {
+                messageData.setApplicationEndTime(interval.getEnd().toGregorianCalendar());
+            }
+        }
 
-            throw new ListOperationException(EnumErrorCatalog.ERR_LST_019, ex, ex.getMessage());
+        messageData.setServerTimestamp(msg.getServerTimestamp().toGregorianCalendar());
+        messageData.setType(msg.getType());
+        messageData.setOwner(msg.getOwner());
+
+        return messageData;
+    }
+
+    /**
+     * Returns the JAXB context used to read the list elements. The context is created only once.
+     * @return JAXB context used to read the list elements.
+     * @throws JAXBException If the context cannot be created.
+     */
+    private static synchronized JAXBContext getJAXBContext() throws JAXBException {
+
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(MessageList.class);
         }
 
-        return listMessageData;
+        return jaxbContext;
     }
+
 }
@@ -20,7 +20,16 @@
  */
 package es.ree.eemws.client.put;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -29,10 +38,13 @@ import org.xml.sax.SAXException;
 
 import ch.iec.tc57._2011.schema.message.RequestMessage;
 import ch.iec.tc57._2011.schema.message.ResponseMessage;
+import es.ree.eemws.client.common.Base64OutputStream;
 import es.ree.eemws.client.common.ParentClient;
 import es.ree.eemws.core.utils.error.EnumErrorCatalog;
+import es.ree.eemws.core.utils.file.FileUtil;
 import es.ree.eemws.core.utils.iec61968100.EnumMessageFormat;
 import es.ree.eemws.core.utils.iec61968100.EnumVerb;
+import es.ree.eemws.core.utils.iec61968100.MessageMetaData;
 import es.ree.eemws.core.utils.iec61968100.MessageUtil;
 import es.ree.eemws.core.utils.operations.HandlerException;
 import es.ree.eemws.core.utils.operations.put.PutOperationException;
@@ -57,6 +69,9 @@ public final class PutMessage extends ParentClient {
     
     /** Compress XML threshold in characters. If not null, payloads with size > compressXmlThresholdChars will be sent compressed. */                                
     private static Long compressXmlThresholdChars = Long.getLong(COMPRESS_XML_THRESHOLD_CHARS_KEY); 
+
+    /** Size of the buffer used to compress and encode streamed payloads. */
+    private static final int BUFFER_SIZE = 8192;
         
     /**
      * Constructor.
@@ -129,11 +144,28 @@ public final class PutMessage extends ParentClient {
      */
     public ResponseMessage putWithResponseMessage(final String name, final byte[] data, final EnumMessageFormat format) throws PutOperationException {
 
+        return putWithResponseMessage(name, data, format, newMessageMetaData());
+    }
+
+    /**
+     * Sends a binary message (can be used to send XML as binary) to the server for further processing.
+     * This method can be used concurrently by several threads since the call's metadata is stored in the given object.
+     * @param name Name of the binary file.
+     * @param data Binary content.
+     * @param format Message's format. Can be <code>null</code> to use default format.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return ResponseMessage with the server's response.
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public ResponseMessage putWithResponseMessage(final String name, final byte[] data, final EnumMessageFormat format, 
+            final MessageMetaData metaData) throws PutOperationException {
+
         ResponseMessage retValue = null;
         
         try {
             RequestMessage requestMessage = MessageUtil.createRequestWithBinaryPayload(name, data, format);
-            retValue = sendMessage(requestMessage);
+            retValue = sendMessage(requestMessage, metaData);
             validateResponse(retValue, true);
         } catch (HandlerException e) {
             throw new PutOperationException(e);
@@ -151,12 +183,26 @@ public final class PutMessage extends ParentClient {
      * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
      */
     public String put(final StringBuilder xmlMessage) throws PutOperationException {
+
+        return put(xmlMessage, newMessageMetaData());
+    }
+
+    /**
+     * Sends an XML message to the server for further processing.
+     * This method can be used concurrently by several threads since the call's metadata is stored in the given object.
+     * @param xmlMessage Xml message to be sent.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return String with the XML response message. <code>null</code> if the response has no payload.
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public String put(final StringBuilder xmlMessage, final MessageMetaData metaData) throws PutOperationException {
         
         String retValue = null;
         
         try {
             
-            retValue = MessageUtil.responsePayload2String(putWithResponseMessage(xmlMessage));
+            retValue = MessageUtil.responsePayload2String(putWithResponseMessage(xmlMessage, metaData));
         
         } catch (TransformerException | ParserConfigurationException e) {
             
@@ -175,6 +221,20 @@ public final class PutMessage extends ParentClient {
      * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
      */
     public ResponseMessage putWithResponseMessage(final StringBuilder xmlMessage) throws PutOperationException {
+
+        return putWithResponseMessage(xmlMessage, newMessageMetaData());
+    }
+
+    /**
+     * Sends an XML message to the server for further processing.
+     * This method can be used concurrently by several threads since the call's metadata is stored in the given object.
+     * @param xmlMessage Xml message to be sent.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return ResponseMessage with the server's response. 
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public ResponseMessage putWithResponseMessage(final StringBuilder xmlMessage, final MessageMetaData metaData) throws PutOperationException {
         
         ResponseMessage retValue = null;
                 
@@ -191,7 +251,7 @@ public final class PutMessage extends ParentClient {
                 requestMessage = MessageUtil.createRequestWithPayload(EnumVerb.CREATE.toString(), noun, xmlMessage);
             }
             
-            retValue = sendMessage(requestMessage);
+            retValue = sendMessage(requestMessage, metaData);
             validateResponse(retValue, true);
           
         } catch (ParserConfigurationException | SAXException | IOException e) {
@@ -205,5 +265,266 @@ public final class PutMessage extends ParentClient {
         
         return retValue;
     }
-    
+
+    /**
+     * Sends the XML document of the given file to the server for further processing.
+     * If the file size is greater than the compression threshold (system property <code>XML_TO_BINARY_THRESHOLD_CHARS</code>)
+     * the document is compressed while it is read, so it is never held uncompressed in memory. Otherwise, and always
+     * if the threshold is not set, the whole document is read into memory.
+     * @param path File with the XML document to be sent.
+     * @return String with the XML response message. <code>null</code> if the response has no payload.
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * @throws IOException If the file cannot be read.
+     * @see #put(Path, MessageMetaData)
+     */
+    public String put(final Path path) throws PutOperationException, IOException {
+
+        return put(path, newMessageMetaData());
+    }
+
+    /**
+     * Sends the XML document of the given file to the server for further processing.
+     * If the file size is greater than the compression threshold (system property <code>XML_TO_BINARY_THRESHOLD_CHARS</code>)
+     * the document is compressed while it is read, so it is never held uncompressed in memory. Otherwise, and always
+     * if the threshold is not set, the whole document is read into memory.
+     * @param path File with the XML document to be sent.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return String with the XML response message. <code>null</code> if the response has no payload.
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * @throws IOException If the file cannot be read.
+     */
+    public String put(final Path path, final MessageMetaData metaData) throws PutOperationException, IOException {
+
+        String retValue = null;
+
+        if (compressXmlThresholdChars != null && Files.size(path) > compressXmlThresholdChars.longValue()) {
+            try (InputStream in = Files.newInputStream(path)) {
+                retValue = put(in, metaData);
+            }
+        } else {
+            retValue = put(new StringBuilder(FileUtil.readUTF8(path.toString())), metaData);
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Sends the XML document read from the given stream to the server for further processing.
+     * The document is always sent compressed, it is compressed and encoded while it is read, so it is never held
+     * uncompressed in memory.
+     * @param xmlMessage Stream with the XML document (UTF-8) to be sent. The stream is not closed.
+     * @return String with the XML response message. <code>null</code> if the response has no payload.
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * @throws IOException If the stream cannot be read.
+     * @see #put(InputStream, MessageMetaData)
+     */
+    public String put(final InputStream xmlMessage) throws PutOperationException, IOException {
+
+        return put(xmlMessage, newMessageMetaData());
+    }
+
+    /**
+     * Sends the XML document read from the given stream to the server for further processing.
+     * The document is always sent compressed, it is compressed and encoded while it is read, so it is never held
+     * uncompressed in memory.
+     * @param xmlMessage Stream with the XML document (UTF-8) to be sent. The stream is not closed.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return String with the XML response message. <code>null</code> if the response has no payload.
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * @throws IOException If the stream cannot be read.
+     */
+    public String put(final InputStream xmlMessage, final MessageMetaData metaData) throws PutOperationException, IOException {
+
+        String retValue = null;
+
+        try {
+
+            retValue = MessageUtil.responsePayload2String(putWithResponseMessage(xmlMessage, metaData));
+
+        } catch (TransformerException | ParserConfigurationException e) {
+
+            throw new PutOperationException(EnumErrorCatalog.ERR_PUT_015, e, e.getMessage());
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Sends the XML document read from the given stream to the server for further processing.
+     * The document is always sent compressed, it is compressed and encoded while it is read, so it is never held
+     * uncompressed in memory.
+     * @param xmlMessage Stream with the XML document (UTF-8) to be sent. The stream is not closed.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return ResponseMessage with the server's response.
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * @throws IOException If the stream cannot be read.
+     */
+    public ResponseMessage putWithResponseMessage(final InputStream xmlMessage, final MessageMetaData metaData) throws PutOperationException, IOException {
+
+        ResponseMessage retValue = null;
+
+        RequestMessage requestMessage = createRequestWithCompressedXmlPayload(encode(xmlMessage, true));
+
+        try {
+            retValue = sendMessage(requestMessage, metaData);
+            validateResponse(retValue, true);
+
+        } catch (HandlerException e) {
+
+            throw new PutOperationException(e);
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Sends the binary content read from the given stream to the server for further processing.
+     * The content is encoded while it is read, so the raw content is never held in memory as a whole.
+     * @param name Name of the binary file.
+     * @param data Stream with the binary content. The stream is not closed.
+     * @param format Message's format. Can be <code>null</code> to use default format.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return ResponseMessage with the server's response.
+     * @throws PutOperationException If the retrieved message has an invalid format or the application cannot handle it
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     * @throws IOException If the stream cannot be read.
+     */
+    public ResponseMessage putWithResponseMessage(final String name, final InputStream data, final EnumMessageFormat format, 
+            final MessageMetaData metaData) throws PutOperationException, IOException {
+
+        ResponseMessage retValue = null;
+
+        String encoded = encode(data, false);
+
+        try {
+            RequestMessage requestMessage = MessageUtil.createRequestWithBinaryPayload(name, new byte[0], format);
+            requestMessage.getPayload().setCompressed(encoded);
+
+            retValue = sendMessage(requestMessage, metaData);
+            validateResponse(retValue, true);
+
+        } catch (HandlerException e) {
+
+            throw new PutOperationException(e);
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Creates a request with the given compressed XML payload. The request is the one created by
+     * <code>MessageUtil</code> for compressed XML payloads (same header and payload format), with its payload
+     * replaced by the given one.
+     * @param encoded XML document compressed (gzip) and encoded as base64.
+     * @return Request with the given payload.
+     * @throws IOException If the request cannot be created.
+     */
+    private static RequestMessage createRequestWithCompressedXmlPayload(final String encoded) throws IOException {
+
+        RequestMessage retValue = MessageUtil.createRequestWithCompressedXmlPayload(new StringBuilder());
+        retValue.getPayload().setCompressed(encoded);
+
+        return retValue;
+    }
+
+    /**
+     * Reads the given stream and encodes its content as base64. The content is encoded into ASCII bytes as it is
+     * read, so the content is never held in memory as a whole before it is encoded. The encoded content is still
+     * copied: the byte buffer grows by doubling its size (copying what it holds) and it is copied again into the
+     * returned string, so the encoded content is held twice for a moment.
+     * @param in Stream to read. The stream is not closed.
+     * @param compress <code>true</code> if the content has to be compressed (gzip) before it is encoded.
+     * @return Base64 encoded content.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static String encode(final InputStream in, final boolean compress) throws IOException {
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(BUFFER_SIZE);
+        OutputStream base64 = new Base64OutputStream(encoded);
+        if (compress) {
+            base64 = new GZIPOutputStream(base64, BUFFER_SIZE);
+        }
+
+        try (OutputStream out = base64) {
+            copy(in, out);
+        }
+
+        return encoded.toString(StandardCharsets.US_ASCII.name());
+    }
+
+    /**
+     * Copies the content of the given input stream into the given output stream.
+     * @param in Input stream.
+     * @param out Output stream.
+     * @throws IOException If the input stream cannot be read or the output stream cannot be written.
+     */
+    private static void copy(final InputStream in, final OutputStream out) throws IOException {
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+    }
+
+    /**
+     * Sends asynchronously an XML message to the server for further processing.
+     * @param xmlMessage Xml message to be sent.
+     * @return Future with the XML response message. If the operation fails, <code>Future.get</code> throws an
+     * <code>ExecutionException</code> whose cause is the <code>PutOperationException</code>.
+     * @see #put(StringBuilder)
+     */
+    public Future<String> putAsync(final StringBuilder xmlMessage) {
+
+        return putAsync(xmlMessage, new MessageMetaData());
+    }
+
+    /**
+     * Sends asynchronously an XML message to the server for further processing.
+     * The calling thread is blocked while the maximum number of requests in flight is reached.
+     * @param xmlMessage Xml message to be sent.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return Future with the XML response message. If the operation fails, <code>Future.get</code> throws an
+     * <code>ExecutionException</code> whose cause is the <code>PutOperationException</code>.
+     * @see #put(StringBuilder, MessageMetaData)
+     */
+    public Future<String> putAsync(final StringBuilder xmlMessage, final MessageMetaData metaData) {
+
+        return submit(new Callable<String>() {
+
+            @Override
+            public String call() throws PutOperationException {
+
+                return put(xmlMessage, metaData);
+            }
+        });
+    }
+
+    /**
+     * Sends asynchronously a binary message to the server for further processing.
+     * The calling thread is blocked while the maximum number of requests in flight is reached.
+     * @param name Name of the binary file.
+     * @param data Binary content.
+     * @param format Message's format. Can be <code>null</code> to use default format.
+     * @param metaData Metadata object for this call, holds the status, reject text and signature data of the response.
+     * @return Future with the server's response. If the operation fails, <code>Future.get</code> throws an
+     * <code>ExecutionException</code> whose cause is the <code>PutOperationException</code>.
+     * @see #putWithResponseMessage(String, byte[], EnumMessageFormat, MessageMetaData)
+     */
+    public Future<ResponseMessage> putAsync(final String name, final byte[] data, final EnumMessageFormat format, final MessageMetaData metaData) {
+
+        return submit(new Callable<ResponseMessage>() {
+
+            @Override
+            public ResponseMessage call() throws PutOperationException {
+
+                return putWithResponseMessage(name, data, format, metaData);
+            }
+        });
+    }
 }
@@ -25,6 +25,8 @@ import java.text.DateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -36,6 +38,7 @@ import es.ree.eemws.core.utils.error.EnumErrorCatalog;
 import es.ree.eemws.core.utils.iec61968100.EnumFilterElement;
 import es.ree.eemws.core.utils.iec61968100.EnumNoun;
 import es.ree.eemws.core.utils.iec61968100.EnumVerb;
+import es.ree.eemws.core.utils.iec61968100.MessageMetaData;
 import es.ree.eemws.core.utils.iec61968100.MessageUtil;
 import es.ree.eemws.core.utils.operations.HandlerException;
 import es.ree.eemws.core.utils.operations.query.QueryOperationException;
@@ -129,11 +132,25 @@ public final class QueryData extends ParentClient {
      */
     public String query(final Map<String, String> msgOptions) throws QueryOperationException {
 
+        return query(msgOptions, newMessageMetaData());
+    }
+
+    /**
+     * Invokes the QueryData operation with the given parameters.
+     * This method can be used concurrently by several threads since the call's metadata is stored in the given object.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @return String with the server's response (only payload content).
+     * @throws QueryOperationException If the retrieved message has an invalid format or the application cannot handle it.
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public String query(final Map<String, String> msgOptions, final MessageMetaData metaData) throws QueryOperationException {
+
         String retValue = null;
         
         try {
 
-            retValue = MessageUtil.responsePayload2String(queryWithResponseMessage(msgOptions));
+            retValue = MessageUtil.responsePayload2String(queryWithResponseMessage(msgOptions, metaData));
 
         } catch (TransformerException | ParserConfigurationException e) {
          
@@ -153,12 +170,26 @@ public final class QueryData extends ParentClient {
      */
     public ResponseMessage queryWithResponseMessage(final Map<String, String> msgOptions) throws QueryOperationException {
 
+        return queryWithResponseMessage(msgOptions, newMessageMetaData());
+    }
+
+    /**
+     * Invokes the QueryData operation with the given parameters.
+     * This method can be used concurrently by several threads since the call's metadata is stored in the given object.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @return ResponseMessage with the server's response.
+     * @throws QueryOperationException If the retrieved message has an invalid format or if the application cannot handle it.
+     * or if the retrieved message has invalid signature or is not valid (has no header, invalid verb, etc.)
+     */
+    public ResponseMessage queryWithResponseMessage(final Map<String, String> msgOptions, final MessageMetaData metaData) throws QueryOperationException {
+
         ResponseMessage retValue = null;
 
         try {
             RequestMessage requestMessage = MessageUtil.createRequestWithOptions(EnumVerb.GET, EnumNoun.QUERY_DATA, msgOptions);
             QueryRequestMessageValidator.validate(requestMessage);
-            retValue = sendMessage(requestMessage);
+            retValue = sendMessage(requestMessage, metaData);
             validateResponse(retValue, EnumNoun.QUERY_DATA.toString());
             
         } catch (HandlerException e) {
@@ -235,4 +266,37 @@ public final class QueryData extends ParentClient {
         
         return msgOptions;
     }
+
+    /**
+     * Invokes asynchronously the QueryData operation with the given parameters.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @return Future with the server's response (only payload content). If the operation fails, <code>Future.get</code>
+     * throws an <code>ExecutionException</code> whose cause is the <code>QueryOperationException</code>.
+     * @see #query(Map)
+     */
+    public Future<String> queryAsync(final Map<String, String> msgOptions) {
+
+        return queryAsync(msgOptions, new MessageMetaData());
+    }
+
+    /**
+     * Invokes asynchronously the QueryData operation with the given parameters.
+     * The calling thread is blocked while the maximum number of requests in flight is reached.
+     * @param msgOptions List options as a Map which key must be on the EnumFilterElement list.
+     * @param metaData Metadata object for this call, holds the status, timestamp and signature data of the response.
+     * @return Future with the server's response (only payload content). If the operation fails, <code>Future.get</code>
+     * throws an <code>ExecutionException</code> whose cause is the <code>QueryOperationException</code>.
+     * @see #query(Map, MessageMetaData)
+     */
+    public Future<String> queryAsync(final Map<String, String> msgOptions, final MessageMetaData metaData) {
+
+        return submit(new Callable<String>() {
+
+            @Override
+            public String call() throws QueryOperationException {
+
+                return query(msgOptions, metaData);
+            }
+        });
+    }
 }
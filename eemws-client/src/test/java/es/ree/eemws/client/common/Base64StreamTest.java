@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.junit.Test;
+
+/**
+ * Round trip tests of {@link Base64OutputStream} and {@link Base64InputStream}.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class Base64StreamTest {
+
+    /** Size of the big content. */
+    private static final int BIG_SIZE = 100000;
+
+    /**
+     * Contents of every length of a base64 group (with and without padding) are encoded as the JDK encoder does
+     * and decoded back.
+     * @throws IOException Never.
+     */
+    @Test
+    public void roundTripAllPaddings() throws IOException {
+
+        for (int len = 0; len <= 10; len++) {
+            byte[] data = newContent(len);
+
+            StringBuilder text = new StringBuilder();
+            try (OutputStream out = new Base64OutputStream(text)) {
+                out.write(data);
+            }
+
+            assertEquals(DatatypeConverter.printBase64Binary(data), text.toString());
+            assertArrayEquals(data, readAll(new Base64InputStream(text)));
+        }
+    }
+
+    /**
+     * Content written as ASCII bytes is the same than the one written as characters.
+     * @throws IOException Never.
+     */
+    @Test
+    public void bytesAndCharactersMatch() throws IOException {
+
+        byte[] data = newContent(BIG_SIZE + 1);
+
+        StringBuilder text = new StringBuilder();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream chars = new Base64OutputStream(text); OutputStream ascii = new Base64OutputStream(bytes)) {
+            chars.write(data);
+            ascii.write(data);
+        }
+
+        assertEquals(text.toString(), bytes.toString(StandardCharsets.US_ASCII.name()));
+        assertArrayEquals(data, readAll(new Base64InputStream(bytes.toString(StandardCharsets.US_ASCII.name()))));
+    }
+
+    /**
+     * Compressed content is decoded and uncompressed while it is read.
+     * @throws IOException Never.
+     */
+    @Test
+    public void roundTripCompressed() throws IOException {
+
+        byte[] data = newContent(BIG_SIZE);
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(new Base64OutputStream(encoded))) {
+            out.write(data);
+        }
+
+        assertArrayEquals(data, readAll(new GZIPInputStream(new Base64InputStream(encoded.toString(StandardCharsets.US_ASCII.name())))));
+    }
+
+    /**
+     * Line breaks and white spaces of the encoded content are ignored.
+     * @throws IOException Never.
+     */
+    @Test
+    public void lineBreaksAreIgnored() throws IOException {
+
+        byte[] data = newContent(100);
+        String text = DatatypeConverter.printBase64Binary(data);
+
+        StringBuilder wrapped = new StringBuilder();
+        for (int cont = 0; cont < text.length(); cont += 76) {
+            wrapped.append(text, cont, Math.min(text.length(), cont + 76)).append("\r\n "); //$NON-NLS-1$
+        }
+
+        assertArrayEquals(data, readAll(new Base64InputStream(wrapped)));
+    }
+
+    /**
+     * Creates content with random bytes.
+     * @param len Number of bytes.
+     * @return Content.
+     */
+    private static byte[] newContent(final int len) {
+
+        byte[] retValue = new byte[len];
+        new Random(len).nextBytes(retValue);
+        return retValue;
+    }
+
+    /**
+     * Reads the given stream until its end, both byte by byte and in blocks.
+     * @param in Stream to read.
+     * @return Content of the stream.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static byte[] readAll(final InputStream in) throws IOException {
+
+        ByteArrayOutputStream retValue = new ByteArrayOutputStream();
+
+        int first = in.read();
+        if (first != -1) {
+            retValue.write(first);
+
+            byte[] buffer = new byte[1000];
+            int len;
+            while ((len = in.read(buffer, 0, buffer.length)) != -1) {
+                retValue.write(buffer, 0, len);
+            }
+        }
+
+        return retValue.toByteArray();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.xml.ws.WebServiceException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the states of {@link CircuitBreaker}.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class CircuitBreakerTest {
+
+    /** Number of consecutive errors that open the circuit in the tests. */
+    private static final int THRESHOLD = 3;
+
+    /** Number of end points created, so that each test has its own circuit. */
+    private static int endPoints = 0;
+
+    /**
+     * Sets the threshold of the tests.
+     */
+    @Before
+    public void setUp() {
+
+        CircuitBreaker.setFailureThreshold(THRESHOLD);
+    }
+
+    /**
+     * Restores the default values.
+     */
+    @After
+    public void tearDown() {
+
+        CircuitBreaker.setFailureThreshold(5);
+        CircuitBreaker.setOpenTime(30000);
+    }
+
+    /**
+     * The circuit stays closed below the threshold, and a call that reaches the server resets the count.
+     * @throws MalformedURLException Never.
+     */
+    @Test
+    public void staysClosedBelowThreshold() throws MalformedURLException {
+
+        CircuitBreaker breaker = newBreaker();
+
+        for (int cont = 1; cont < THRESHOLD; cont++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getFailureCount());
+    }
+
+    /**
+     * The circuit opens at the threshold and then rejects the calls until the open time has passed.
+     * @throws MalformedURLException Never.
+     */
+    @Test
+    public void opensAtThreshold() throws MalformedURLException {
+
+        CircuitBreaker.setOpenTime(60000);
+        CircuitBreaker breaker = newBreaker();
+
+        for (int cont = 0; cont < THRESHOLD; cont++) {
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        assertEquals(2, breaker.getRejectedCount());
+    }
+
+    /**
+     * Once the open time has passed one probe call is let through: if it fails the circuit opens again,
+     * if it reaches the server the circuit is closed.
+     * @throws MalformedURLException Never.
+     */
+    @Test
+    public void halfOpenProbe() throws MalformedURLException {
+
+        CircuitBreaker.setOpenTime(60000);
+        CircuitBreaker breaker = newBreaker();
+
+        for (int cont = 0; cont < THRESHOLD; cont++) {
+            breaker.onFailure();
+        }
+
+        CircuitBreaker.setOpenTime(0);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        CircuitBreaker.setOpenTime(60000);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        CircuitBreaker.setOpenTime(0);
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureCount());
+    }
+
+    /**
+     * Only the errors caused by the transport are failures of the end point.
+     */
+    @Test
+    public void onlyTransportErrorsAreFailures() {
+
+        assertTrue(CircuitBreaker.isTransportFailure(new WebServiceException(new ConnectException("Connection refused")))); //$NON-NLS-1$
+        assertTrue(CircuitBreaker.isTransportFailure(new WebServiceException(new SocketTimeoutException("Read timed out")))); //$NON-NLS-1$
+        assertFalse(CircuitBreaker.isTransportFailure(new WebServiceException(new SSLHandshakeException("PKIX path building failed")))); //$NON-NLS-1$
+        assertFalse(CircuitBreaker.isTransportFailure(new WebServiceException("The server sent HTTP status code 404: Not Found"))); //$NON-NLS-1$
+        assertFalse(CircuitBreaker.isTransportFailure(new IllegalStateException()));
+    }
+
+    /**
+     * Creates the circuit breaker of a new end point.
+     * @return Closed circuit breaker.
+     * @throws MalformedURLException Never.
+     */
+    private static CircuitBreaker newBreaker() throws MalformedURLException {
+
+        endPoints++;
+        return CircuitBreaker.get(new URL("https://localhost/circuit" + endPoints)); //$NON-NLS-1$
+    }
+}
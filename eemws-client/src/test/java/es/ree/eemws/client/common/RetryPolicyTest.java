@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.xml.ws.WebServiceException;
+
+import org.junit.Test;
+
+/**
+ * Tests of the calls that {@link RetryPolicy} allows to retry.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class RetryPolicyTest {
+
+    /**
+     * A put is retried when the connection could not be established.
+     */
+    @Test
+    public void putIsRetriedWhenNotConnected() {
+
+        assertTrue(RetryPolicy.isRetryable(new WebServiceException(new ConnectException("Connection refused")), false)); //$NON-NLS-1$
+        assertTrue(RetryPolicy.isRetryable(new WebServiceException(new ConnectException("Connection timed out (Connection timed out)")), false)); //$NON-NLS-1$
+        assertTrue(RetryPolicy.isRetryable(new WebServiceException(new RuntimeException(new UnknownHostException("unknown.host"))), false)); //$NON-NLS-1$
+        assertTrue(RetryPolicy.isRetryable(new WebServiceException(new NoRouteToHostException("No route to host")), false)); //$NON-NLS-1$
+    }
+
+    /**
+     * A put is not retried when the request could have been sent, even if the message says "Connection timed out".
+     */
+    @Test
+    public void putIsNotRetriedOnceSent() {
+
+        assertFalse(RetryPolicy.isRetryable(new WebServiceException(new SocketException("Connection timed out (Read failed)")), false)); //$NON-NLS-1$
+        assertFalse(RetryPolicy.isRetryable(new WebServiceException(new SocketTimeoutException("Read timed out")), false)); //$NON-NLS-1$
+        assertFalse(RetryPolicy.isRetryable(new WebServiceException(new SocketException("Connection reset")), false)); //$NON-NLS-1$
+        assertFalse(RetryPolicy.isRetryable(new WebServiceException("java.net.ConnectException: Connection refused"), false)); //$NON-NLS-1$
+    }
+
+    /**
+     * A get is retried on any transport failure, even once the request was sent.
+     */
+    @Test
+    public void getIsRetriedOnTransportFailures() {
+
+        assertTrue(RetryPolicy.isRetryable(new WebServiceException(new SocketTimeoutException("Read timed out")), true)); //$NON-NLS-1$
+        assertTrue(RetryPolicy.isRetryable(new WebServiceException(new SocketException("Connection reset")), true)); //$NON-NLS-1$
+        assertTrue(RetryPolicy.isRetryable(new WebServiceException(new ConnectException("Connection refused")), true)); //$NON-NLS-1$
+        assertTrue(RetryPolicy.isRetryable(new WebServiceException(new UnknownHostException("unknown.host")), true)); //$NON-NLS-1$
+    }
+
+    /**
+     * A get is not retried on errors that are not transport failures, whatever their error code.
+     */
+    @Test
+    public void getIsNotRetriedOnOtherErrors() {
+
+        assertFalse(RetryPolicy.isRetryable(new WebServiceException("The server sent HTTP status code 503: Service Unavailable"), true)); //$NON-NLS-1$
+        assertFalse(RetryPolicy.isRetryable(new WebServiceException(new IllegalStateException("Unable to unmarshal")), true)); //$NON-NLS-1$
+        assertFalse(RetryPolicy.isRetryable(new NullPointerException(), true));
+        assertFalse(RetryPolicy.isRetryable(new WebServiceException(new SSLHandshakeException("PKIX path building failed")), true)); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.client.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPBody;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+
+import es.ree.eemws.core.utils.security.SignatureManager;
+import es.ree.eemws.core.utils.xml.XMLUtil;
+
+/**
+ * Compares the allocations and CPU time per message of the two ways of signing a request in {@link SendHandler}:
+ * serializing the body to a string, signing the string and parsing it back (old), and signing the body
+ * content document in place (current).
+ * It is not a unit test, run it with <code>java es.ree.eemws.client.common.SignatureBenchmark [iterations] [payload KB]</code>.
+ * A temporary key store is created with <code>keytool</code>.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class SignatureBenchmark {
+
+    /** Default number of measured iterations. */
+    private static final int DEFAULT_ITERATIONS = 500;
+
+    /** Default size of the payload in KB. */
+    private static final int DEFAULT_PAYLOAD_KB = 50;
+
+    /** Password of the temporary key store. */
+    private static final String PASSWORD = "benchmark"; //$NON-NLS-1$
+
+    /** Thread bean used to read the CPU time and the allocations of the current thread. */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Private key that signs the messages. */
+    private final PrivateKey privateKey;
+
+    /** Certificate of the private key. */
+    private final X509Certificate certificate;
+
+    /** Text of the SOAP message to sign. */
+    private final byte[] soapMessage;
+
+    /**
+     * Creates a new benchmark.
+     * @param identity Identity that signs the messages.
+     * @param payloadKb Size of the payload in KB.
+     */
+    private SignatureBenchmark(final ClientIdentity identity, final int payloadKb) {
+
+        privateKey = identity.getPrivateKey();
+        certificate = identity.getCertificate();
+
+        StringBuilder xml = new StringBuilder();
+        xml.append("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>"); //$NON-NLS-1$
+        xml.append("<RequestMessage xmlns=\"http://iec.ch/TC57/2011/schema/message\"><Header><Verb>create</Verb>"); //$NON-NLS-1$
+        xml.append("<Noun>Benchmark</Noun></Header><Payload><Benchmark>"); //$NON-NLS-1$
+        for (int cont = 0; cont < payloadKb * 1024 / 64; cont++) {
+            xml.append("<Point><Pos>").append(cont).append("</Pos><Qty>123456.789</Qty></Point>"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        xml.append("</Benchmark></Payload></RequestMessage></soapenv:Body></soapenv:Envelope>"); //$NON-NLS-1$
+
+        soapMessage = xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args Number of measured iterations and size of the payload in KB (optional).
+     * @throws Exception If the key store cannot be created or a message cannot be signed.
+     */
+    public static void main(final String[] args) throws Exception {
+
+        int iterations = DEFAULT_ITERATIONS;
+        int payloadKb = DEFAULT_PAYLOAD_KB;
+        if (args.length > 0) {
+            iterations = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            payloadKb = Integer.parseInt(args[1]);
+        }
+
+        THREAD_BEAN.setThreadAllocatedMemoryEnabled(true);
+        THREAD_BEAN.setThreadCpuTimeEnabled(true);
+
+        SignatureBenchmark benchmark = new SignatureBenchmark(createIdentity(), payloadKb);
+
+        /* Warm up both paths before measuring. */
+        benchmark.run(false, iterations);
+        benchmark.run(true, iterations);
+
+        long[] old = benchmark.run(false, iterations);
+        long[] current = benchmark.run(true, iterations);
+
+        System.out.println("Payload " + payloadKb + " KB, " + iterations + " messages"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        print("Sign string  ", old, iterations); //$NON-NLS-1$
+        print("Sign document", current, iterations); //$NON-NLS-1$
+        System.out.println("Saved per message: " + (old[0] - current[0]) / iterations + " bytes, " //$NON-NLS-1$ //$NON-NLS-2$
+                + (old[1] - current[1]) / iterations / 1000 + " us CPU"); //$NON-NLS-1$
+    }
+
+    /**
+     * Signs the given number of messages.
+     * @param inPlace <code>true</code> to sign the body content document, <code>false</code> to sign its text.
+     * @param iterations Number of messages.
+     * @return Bytes allocated and CPU nanoseconds spent by the signature of all the messages.
+     * @throws Exception If a message cannot be signed.
+     */
+    private long[] run(final boolean inPlace, final int iterations) throws Exception {
+
+        long threadId = Thread.currentThread().getId();
+        long[] retValue = new long[2];
+        MessageFactory factory = MessageFactory.newInstance();
+
+        for (int cont = 0; cont < iterations; cont++) {
+
+            SOAPMessage message = factory.createMessage(new MimeHeaders(), new ByteArrayInputStream(soapMessage));
+            SOAPBody body = message.getSOAPBody();
+
+            long bytes = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+            long cpu = THREAD_BEAN.getCurrentThreadCpuTime();
+
+            if (inPlace) {
+                Document document = body.extractContentAsDocument();
+                SignatureManager.signDocument(document, privateKey, certificate);
+                body.addDocument(document);
+            } else {
+                StringBuilder text = serialize(message);
+                SignatureManager.signString(text, privateKey, certificate);
+                body.removeContents();
+                body.addDocument(XMLUtil.string2Document(text));
+            }
+
+            retValue[1] += THREAD_BEAN.getCurrentThreadCpuTime() - cpu;
+            retValue[0] += THREAD_BEAN.getThreadAllocatedBytes(threadId) - bytes;
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Serializes the body content of the given message, as the handler did before signing it.
+     * @param message SOAP message.
+     * @return Text of the body content.
+     * @throws Exception If the message cannot be serialized.
+     */
+    private static StringBuilder serialize(final SOAPMessage message) throws Exception {
+
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes"); //$NON-NLS-1$
+        StringWriter writer = new StringWriter();
+        transformer.transform(new DOMSource(message.getSOAPBody().getFirstChild()), new StreamResult(writer));
+
+        return new StringBuilder(writer.getBuffer());
+    }
+
+    /**
+     * Prints the averages of a run.
+     * @param name Name of the run.
+     * @param totals Bytes allocated and CPU nanoseconds of the run.
+     * @param iterations Number of messages of the run.
+     */
+    private static void print(final String name, final long[] totals, final int iterations) {
+
+        System.out.println(name + ": " + totals[0] / iterations + " bytes, " //$NON-NLS-1$ //$NON-NLS-2$
+                + totals[1] / iterations / 1000 + " us CPU per message"); //$NON-NLS-1$
+    }
+
+    /**
+     * Creates a temporary key store with a self-signed certificate and loads it.
+     * @return Identity of the key store.
+     * @throws Exception If the key store cannot be created.
+     */
+    private static ClientIdentity createIdentity() throws Exception {
+
+        File keyStore = Files.createTempFile("benchmark", ".p12").toFile(); //$NON-NLS-1$ //$NON-NLS-2$
+        keyStore.delete();
+        keyStore.deleteOnExit();
+
+        String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        Process process = new ProcessBuilder(keytool, "-genkeypair", "-keyalg", "RSA", "-keysize", "2048", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+                "-alias", "benchmark", "-dname", "CN=benchmark", "-validity", "1", "-storetype", "PKCS12", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+                "-keystore", keyStore.getAbsolutePath(), "-storepass", PASSWORD, "-keypass", PASSWORD) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                .inheritIO().start();
+
+        if (process.waitFor() != 0) {
+            throw new IOException("Unable to create the key store with " + keytool); //$NON-NLS-1$
+        }
+
+        return ClientIdentity.load(keyStore.getAbsolutePath(), PASSWORD.toCharArray(), "PKCS12"); //$NON-NLS-1$
+    }
+}
@@ -21,6 +21,7 @@ REM Uncomment if you have to deal with systems that cannot handle SHA-2 algorith
 REM SET JAVA_OPTIONS=%JAVA_OPTIONS% -DUSE_LEGACY_SHA1
 
 REM Uncomment if you want to send as binary compressed XML payload which size is greater than the specified number of characters (here 1000)
+REM Magic folder input files bigger than this are compressed while they are read. Without this option every input file is read whole into memory.
 REM SET JAVA_OPTIONS=%JAVA_OPTIONS% -DXML_TO_BINARY_THRESHOLD_CHARS=1000
 
 REM Uncomment if you want to get the xml outputs pretty printed (note: this could impact in the performance if your system deals with "huge" messages)
@@ -20,6 +20,7 @@ export JAVA_OPTIONS=
 #export JAVA_OPTIONS="${JAVA_OPTIONS} -DUSE_LEGACY_SHA1"
 
 # Uncomment if you want to send as binary compressed XML payload which size is greater than the specified number of characters (here 1000)
+# Magic folder input files bigger than this are compressed while they are read. Without this option every input file is read whole into memory.
 #export JAVA_OPTIONS="${JAVA_OPTIONS} -DXML_TO_BINARY_THRESHOLD_CHARS=1000"
 
 # Uncomment if you want to get the xml outputs pretty printed (note: this could impact in the performance if your system deals with "huge" messages)
@@ -20,8 +20,13 @@
  */
 package es.ree.eemws.kit.cmd.get;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -37,6 +42,7 @@ import es.ree.eemws.core.utils.config.ConfigException;
 import es.ree.eemws.core.utils.error.EnumErrorCatalog;
 import es.ree.eemws.core.utils.file.FileUtil;
 import es.ree.eemws.core.utils.iec61968100.EnumFilterElement;
+import es.ree.eemws.core.utils.iec61968100.MessageMetaData;
 import es.ree.eemws.core.utils.operations.get.GetOperationException;
 import es.ree.eemws.kit.cmd.ParentMain;
 import es.ree.eemws.kit.common.Messages;
@@ -70,6 +76,9 @@ public final class Main extends ParentMain {
     /** Sets text for parameter <code>msgVer</code>. */
     private static final String PARAMETER_OUT_FILE = Messages.getString("PARAMETER_OUT_FILE"); //$NON-NLS-1$
 
+    /** Prefix of the temporal file where the retrieved payload is written. */
+    private static final String TMP_PREFIX = "_tmp_get_"; //$NON-NLS-1$
+
     /**
      * Main. Executes the get command.
      * @param args command line arguments. 
@@ -130,27 +139,44 @@ public final class Main extends ParentMain {
 
             long init = System.currentTimeMillis();
 
-            /* Send the request (get operation will validate at this point the parameters) */
-            RetrievedMessage response = get.get(msgOptions);
-
             /*
-             * Prints retrieved messages on screen if the user didn't specified an output file
-             * Note that binary messages are always saved to disk: if no file name was specified the one provided by the server will be used
-             * other wise, the file name specified by the user will overrride the one provided by the server. 
+             * Send the request (get operation will validate at this point the parameters). Binary payloads are written
+             * into a temporal file so that "huge" binary messages are never held in memory. XML payloads are kept in
+             * memory since they are pretty printed anyway.
              */
+            File outputFolder;
             if (outputFile == null) {
-                if (response.isBinary()) {
-                    String fileName = response.getFileName();
-                    FileUtil.write(fileName, response.getBinaryPayload());
-                } else {
-                    LOGGER.info(response.getPrettyPayload());
-                }
+                outputFolder = new File(".").getAbsoluteFile(); //$NON-NLS-1$
             } else {
+                outputFolder = new File(outputFile).getAbsoluteFile().getParentFile();
+            }
+            
+            Path tmpFile = File.createTempFile(TMP_PREFIX, null, outputFolder).toPath();
+            RetrievedMessage response;
+            try {
+                response = get.getBinaryTo(msgOptions, new MessageMetaData(), tmpFile);
+                
+                /*
+                 * Prints retrieved messages on screen if the user didn't specified an output file
+                 * Note that binary messages are always saved to disk: if no file name was specified the one provided by the server will be used
+                 * other wise, the file name specified by the user will overrride the one provided by the server. 
+                 */
                 if (response.isBinary()) {
-                    FileUtil.write(outputFile, response.getBinaryPayload());
+                    String fileName = outputFile;
+                    if (fileName == null) {
+                        fileName = response.getFileName();
+                    }
+                    Files.move(tmpFile, Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING);
                 } else {
-                    FileUtil.writeUTF8(outputFile, response.getPrettyPayload());
+                    String prettyPayload = response.getPrettyPayload();
+                    if (outputFile == null) {
+                        LOGGER.info(prettyPayload);
+                    } else {
+                        FileUtil.writeUTF8(outputFile, prettyPayload);
+                    }
                 }
+            } finally {
+                Files.deleteIfExists(tmpFile);
             }
 
             /* Writes performance values on screen if the user set an output file or if the retrieved message is binary. */
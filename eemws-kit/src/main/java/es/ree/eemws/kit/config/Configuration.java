@@ -23,9 +23,11 @@ package es.ree.eemws.kit.config;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.GeneralSecurityException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import es.ree.eemws.client.common.ClientIdentity;
 import es.ree.eemws.core.utils.config.ConfigException;
 import es.ree.eemws.core.utils.config.ConfigManager;
 import es.ree.eemws.core.utils.file.FileUtil;
@@ -395,6 +397,35 @@ public class Configuration {
     	keyStoreType = type;
     }
 
+    /**
+     * Returns the identity of the configured key store, so that each client uses its own TLS context and
+     * signing key instead of the global <code>javax.net.ssl.*</code> system properties.
+     * The key store is loaded only once, the same identity is returned while the file is not modified.
+     * @return Identity of the configured key store. <code>null</code> if there is no key store configured.
+     * @throws ConfigException If the key store cannot be loaded.
+     */
+    public final ClientIdentity getIdentity() throws ConfigException {
+
+        ClientIdentity retValue = null;
+
+        if (keyStoreFile != null) {
+            char[] password;
+            if (keyStorePassword == null) {
+                password = new char[0];
+            } else {
+                password = keyStorePassword.toCharArray();
+            }
+
+            try {
+                retValue = ClientIdentity.load(keyStoreFile, password, getKeyStoreType());
+            } catch (IOException | GeneralSecurityException e) {
+                throw new ConfigException(Messages.getString("SETTINGS_INVALID_KEY_STORE", keyStoreFile, e.getMessage())); //$NON-NLS-1$
+            }
+        }
+
+        return retValue;
+    }
+
     /**
      * Absolute path to keystore file.
      * <code>null</code> null if is not correctly set.
@@ -52,6 +52,15 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
     /** Configuration key for HOST (or IP) RMI value. */
     private static final String HOST_PREFIX_KEY = "HOST"; //$NON-NLS-1$
 
+    /** Configuration key for the number of workers that send files concurrently. */
+    private static final String INPUT_NUM_WORKERS_KEY = "INPUT_FOLDER_NUM_WORKERS"; //$NON-NLS-1$
+
+    /** Configuration key for sending the input files in order. */
+    private static final String INPUT_ORDERED_KEY = "INPUT_FOLDER_ORDERED"; //$NON-NLS-1$
+
+    /** Configuration key for watching the input folder. */
+    private static final String INPUT_WATCH_KEY = "INPUT_FOLDER_WATCH"; //$NON-NLS-1$
+
     /** Configuration key for input sleep time between run loops. */
     private static final String INPUT_DELAYTIME_KEY = "INPUT_FOLDER_DELAY_TIME_MS"; //$NON-NLS-1$
 
@@ -82,6 +91,9 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
     /** Configuration key for output sleep time between run loops. */
     private static final String OUTPUT_DELAYTIME_KEY = "OUTPUT_FOLDER_DELAY_TIME_MS"; //$NON-NLS-1$
 
+    /** Configuration key for the number of workers that retrieve messages concurrently. */
+    private static final String OUTPUT_NUM_WORKERS_KEY = "OUTPUT_FOLDER_NUM_WORKERS"; //$NON-NLS-1$
+
     /** Configuration key for the messages types to be retrieved. */
     private static final String MENSSAGE_TYPES_KEY = "OUTPUT_FOLDER_MESSAGE_TYPES"; //$NON-NLS-1$
 
@@ -109,6 +121,84 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
     /** Default value for the numbers of days that a file is kept in the system. */
     private static final int DEFAULT_MAX_FILE_AGE_IN_DAYS = 7;
 
+    /** Configuration key for the max number of programs executed at once. */
+    private static final String PROGRAM_MAX_CONCURRENT_KEY = "PROGRAM_MAX_CONCURRENT"; //$NON-NLS-1$
+
+    /** Configuration key for the max number of programs waiting to be executed. */
+    private static final String PROGRAM_QUEUE_SIZE_KEY = "PROGRAM_QUEUE_SIZE"; //$NON-NLS-1$
+
+    /** Configuration key for the max execution time of a program. */
+    private static final String PROGRAM_TIMEOUT_KEY = "PROGRAM_TIMEOUT_MS"; //$NON-NLS-1$
+
+    /** Default max number of programs executed at once. */
+    private static final int DEFAULT_PROGRAM_MAX_CONCURRENT = 4;
+
+    /** Max value for the number of programs executed at once. */
+    private static final int MAX_PROGRAM_MAX_CONCURRENT = 25;
+
+    /** Default max number of programs waiting to be executed. */
+    private static final int DEFAULT_PROGRAM_QUEUE_SIZE = 1000;
+
+    /** Configuration key for the max number of files of a batch of program executions. */
+    private static final String PROGRAM_BATCH_MAX_FILES_KEY = "PROGRAM_BATCH_MAX_FILES"; //$NON-NLS-1$
+
+    /** Configuration key for the max time that a file waits for its batch of program executions. */
+    private static final String PROGRAM_BATCH_WINDOW_KEY = "PROGRAM_BATCH_WINDOW_MS"; //$NON-NLS-1$
+
+    /** Default max number of files of a batch of program executions. */
+    private static final int DEFAULT_PROGRAM_BATCH_MAX_FILES = 100;
+
+    /** Default max time in milliseconds that a file waits for its batch of program executions. */
+    private static final long DEFAULT_PROGRAM_BATCH_WINDOW = 5000L;
+
+    /** Configuration key for the backup mode. */
+    private static final String BACKUP_MODE_KEY = "BACKUP_MODE"; //$NON-NLS-1$
+
+    /** Old files are added to one backup file per day, which is rewritten on each run (default). */
+    public static final String BACKUP_MODE_DAILY = "DAILY"; //$NON-NLS-1$
+
+    /** Old files are written into a new backup file on each run. */
+    public static final String BACKUP_MODE_INCREMENTAL = "INCREMENTAL"; //$NON-NLS-1$
+
+    /** Configuration key for the store of the output list codes. */
+    private static final String CURSOR_STORE_KEY = "OUTPUT_CURSOR_STORE"; //$NON-NLS-1$
+
+    /** Configuration key for the folder of the output list codes file store. */
+    private static final String CURSOR_FOLDER_KEY = "OUTPUT_CURSOR_FOLDER"; //$NON-NLS-1$
+
+    /** Default folder of the output list codes file store (relative to the user's home). */
+    private static final String DEFAULT_CURSOR_FOLDER = ".magic-folder"; //$NON-NLS-1$
+
+    /** Output list codes are kept in files (default). */
+    public static final String CURSOR_STORE_FILE = "FILE"; //$NON-NLS-1$
+
+    /** Output list codes are kept in the user's preferences. */
+    public static final String CURSOR_STORE_PREFERENCES = "PREFERENCES"; //$NON-NLS-1$
+
+    /** Configuration key for the lock backend. */
+    private static final String LOCK_BACKEND_KEY = "LOCK_BACKEND"; //$NON-NLS-1$
+
+    /** Configuration key for the folder of the lease files. */
+    private static final String LOCK_LEASE_FOLDER_KEY = "LOCK_LEASE_FOLDER"; //$NON-NLS-1$
+
+    /** Configuration key for the lease time. */
+    private static final String LOCK_LEASE_TIME_KEY = "LOCK_LEASE_TIME_MS"; //$NON-NLS-1$
+
+    /** Configuration key for splitting the work among the members. */
+    private static final String LOCK_PARTITIONED_KEY = "LOCK_PARTITIONED"; //$NON-NLS-1$
+
+    /** Default lease time in milliseconds. */
+    private static final long DEFAULT_LEASE_TIME = 300000L;
+
+    /** Min lease time in milliseconds. */
+    private static final long MIN_LEASE_TIME = 3000L;
+
+    /** Locks are handled by asking the members of the group using RMI (default). */
+    public static final String LOCK_BACKEND_RMI = "RMI"; //$NON-NLS-1$
+
+    /** Locks are handled using lease files in a shared folder. */
+    public static final String LOCK_BACKEND_LEASE = "LEASE"; //$NON-NLS-1$
+
     /** ID string for this service into farm. */
     private String rmiServiceNumber;
 
@@ -124,9 +214,45 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
     /** Max number of concurrent threads. */
     private int maxNumThreads;
 
+    /** Store of the output list codes. */
+    private String cursorStoreType;
+
+    /** Lock backend. */
+    private String lockBackend;
+
+    /** Folder of the lease files. */
+    private String leaseFolder;
+
+    /** Lease time in milliseconds. */
+    private long leaseTime;
+
+    /** Whether the work is split among the members. */
+    private boolean lockPartitioned;
+
+    /** Folder of the output list codes file store. */
+    private String cursorFolder;
+
     /** Backup folder. */
     protected String backupFolder = null;
 
+    /** Backup mode. */
+    private String backupMode;
+
+    /** Max number of programs executed at once. */
+    private int programMaxConcurrent;
+
+    /** Max number of programs waiting to be executed. */
+    private int programQueueSize;
+
+    /** Max execution time of a program in milliseconds, <code>0</code> if there is no limit. */
+    private long programTimeout;
+
+    /** Max number of files of a batch of program executions. */
+    private int programBatchMaxFiles;
+
+    /** Max time in milliseconds that a file waits for its batch of program executions. */
+    private long programBatchWindow;
+
     /** List of input configuration sets. */
     protected List<InputConfigurationSet> inputSetLst = new ArrayList<>();
 
@@ -268,6 +394,156 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
         backupFolder = folder;
     }
 
+    /**
+     * Gets the max number of programs executed at once.
+     * @return Max number of programs executed at once.
+     */
+    public int getProgramMaxConcurrent() {
+        return programMaxConcurrent;
+    }
+
+    /**
+     * Gets the max number of programs waiting to be executed.
+     * @return Max number of programs waiting to be executed.
+     */
+    public int getProgramQueueSize() {
+        return programQueueSize;
+    }
+
+    /**
+     * Gets the max execution time of a program.
+     * @return Max execution time in milliseconds, <code>0</code> if there is no limit.
+     */
+    public long getProgramTimeout() {
+        return programTimeout;
+    }
+
+    /**
+     * Gets the max number of files of a batch of program executions.
+     * @return Max number of files of a batch.
+     */
+    public int getProgramBatchMaxFiles() {
+        return programBatchMaxFiles;
+    }
+
+    /**
+     * Gets the max time that a file waits for its batch of program executions.
+     * @return Max time in milliseconds.
+     */
+    public long getProgramBatchWindow() {
+        return programBatchWindow;
+    }
+
+    /**
+     * Sets the size of the batches of program executions.
+     * @param maxFiles Configured max number of files of a batch.
+     * @param window Configured max time that a file waits for its batch.
+     * @throws ConfigException If any of the values is not a valid number.
+     */
+    private void setProgramBatch(final String maxFiles, final String window) throws ConfigException {
+        programBatchMaxFiles = DEFAULT_PROGRAM_BATCH_MAX_FILES;
+        if (isNotNullAndNotEmpty(maxFiles)) {
+            try {
+                programBatchMaxFiles = Integer.parseInt(maxFiles.trim());
+            } catch (NumberFormatException ex) {
+                throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", PROGRAM_BATCH_MAX_FILES_KEY, maxFiles)); //$NON-NLS-1$
+            }
+
+            if (programBatchMaxFiles < 1) {
+                throw new ConfigException(Messages.getString("MF_VALUE_TOO_SMALL", PROGRAM_BATCH_MAX_FILES_KEY, programBatchMaxFiles, 0)); //$NON-NLS-1$
+            }
+        }
+
+        programBatchWindow = DEFAULT_PROGRAM_BATCH_WINDOW;
+        if (isNotNullAndNotEmpty(window)) {
+            try {
+                programBatchWindow = Long.parseLong(window.trim());
+            } catch (NumberFormatException ex) {
+                throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", PROGRAM_BATCH_WINDOW_KEY, window)); //$NON-NLS-1$
+            }
+
+            if (programBatchWindow < 0) {
+                throw new ConfigException(Messages.getString("MF_VALUE_TOO_SMALL", PROGRAM_BATCH_WINDOW_KEY, programBatchWindow, -1)); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Sets the limits of the program executions.
+     * @param maxConcurrent Configured max number of programs executed at once.
+     * @param queueSize Configured max number of programs waiting to be executed.
+     * @param timeout Configured max execution time of a program.
+     * @throws ConfigException If any of the values is not a valid number.
+     */
+    private void setProgramLimits(final String maxConcurrent, final String queueSize, final String timeout) throws ConfigException {
+        programMaxConcurrent = DEFAULT_PROGRAM_MAX_CONCURRENT;
+        if (isNotNullAndNotEmpty(maxConcurrent)) {
+            try {
+                programMaxConcurrent = Integer.parseInt(maxConcurrent.trim());
+            } catch (NumberFormatException ex) {
+                throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", PROGRAM_MAX_CONCURRENT_KEY, maxConcurrent)); //$NON-NLS-1$
+            }
+
+            if (programMaxConcurrent < 1) {
+                throw new ConfigException(Messages.getString("MF_VALUE_TOO_SMALL", PROGRAM_MAX_CONCURRENT_KEY, programMaxConcurrent, 0)); //$NON-NLS-1$
+            }
+
+            if (programMaxConcurrent > MAX_PROGRAM_MAX_CONCURRENT) {
+                programMaxConcurrent = MAX_PROGRAM_MAX_CONCURRENT;
+            }
+        }
+
+        programQueueSize = DEFAULT_PROGRAM_QUEUE_SIZE;
+        if (isNotNullAndNotEmpty(queueSize)) {
+            try {
+                programQueueSize = Integer.parseInt(queueSize.trim());
+            } catch (NumberFormatException ex) {
+                throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", PROGRAM_QUEUE_SIZE_KEY, queueSize)); //$NON-NLS-1$
+            }
+
+            if (programQueueSize < 1) {
+                throw new ConfigException(Messages.getString("MF_VALUE_TOO_SMALL", PROGRAM_QUEUE_SIZE_KEY, programQueueSize, 0)); //$NON-NLS-1$
+            }
+        }
+
+        programTimeout = 0;
+        if (isNotNullAndNotEmpty(timeout)) {
+            try {
+                programTimeout = Long.parseLong(timeout.trim());
+            } catch (NumberFormatException ex) {
+                throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", PROGRAM_TIMEOUT_KEY, timeout)); //$NON-NLS-1$
+            }
+
+            if (programTimeout < 0) {
+                throw new ConfigException(Messages.getString("MF_VALUE_TOO_SMALL", PROGRAM_TIMEOUT_KEY, programTimeout, -1)); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Gets the backup mode.
+     * @return {@link #BACKUP_MODE_DAILY} or {@link #BACKUP_MODE_INCREMENTAL}.
+     */
+    public String getBackupMode() {
+        return backupMode;
+    }
+
+    /**
+     * Sets the backup mode.
+     * @param mode Configured backup mode.
+     * @throws ConfigException If the configured mode is unknown.
+     */
+    private void setBackupMode(final String mode) throws ConfigException {
+        if (isNotNullAndNotEmpty(mode)) {
+            backupMode = mode.trim().toUpperCase();
+            if (!backupMode.equals(BACKUP_MODE_DAILY) && !backupMode.equals(BACKUP_MODE_INCREMENTAL)) {
+                throw new ConfigException(Messages.getString("MF_INVALID_VALUE", BACKUP_MODE_KEY, mode, BACKUP_MODE_DAILY + ", " + BACKUP_MODE_INCREMENTAL)); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        } else {
+            backupMode = BACKUP_MODE_DAILY;
+        }
+    }
+
     /**
      * Gets the number of days that a generated file is keep in the file system.
      * @return Number of days that a generated file is keep in the file system.
@@ -293,6 +569,123 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
         }
     }
 
+    /**
+     * Returns the store of the output list codes.
+     * @return {@link #CURSOR_STORE_FILE} or {@link #CURSOR_STORE_PREFERENCES}.
+     */
+    public String getCursorStoreType() {
+        return cursorStoreType;
+    }
+
+    /**
+     * Returns the folder of the output list codes file store.
+     * @return Folder of the output list codes file store.
+     */
+    public String getCursorFolder() {
+        return cursorFolder;
+    }
+
+    /**
+     * Sets the store of the output list codes.
+     * @param type Configured store.
+     * @param folder Configured folder of the file store.
+     * @throws ConfigException If the configured store is unknown or the configured folder does not exist.
+     */
+    private void setCursorStore(final String type, final String folder) throws ConfigException {
+        if (isNotNullAndNotEmpty(type)) {
+            cursorStoreType = type.trim().toUpperCase();
+            if (!cursorStoreType.equals(CURSOR_STORE_FILE) && !cursorStoreType.equals(CURSOR_STORE_PREFERENCES)) {
+                throw new ConfigException(Messages.getString("MF_INVALID_VALUE", CURSOR_STORE_KEY, type, CURSOR_STORE_FILE + ", " + CURSOR_STORE_PREFERENCES)); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        } else {
+            cursorStoreType = CURSOR_STORE_FILE;
+        }
+
+        cursorFolder = validateFolder(folder, CURSOR_FOLDER_KEY);
+        if (cursorFolder == null) {
+            cursorFolder = System.getProperty("user.home") + File.separator + DEFAULT_CURSOR_FOLDER; //$NON-NLS-1$
+            File f = new File(cursorFolder);
+            if (cursorStoreType.equals(CURSOR_STORE_FILE) && !f.isDirectory() && !f.mkdirs()) {
+                throw new ConfigException(Messages.getString("MF_INVALID_FOLDER", CURSOR_FOLDER_KEY, cursorFolder)); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Returns the lock backend.
+     * @return {@link #LOCK_BACKEND_RMI} or {@link #LOCK_BACKEND_LEASE}.
+     */
+    public String getLockBackend() {
+        return lockBackend;
+    }
+
+    /**
+     * Returns the folder of the lease files.
+     * @return Folder of the lease files. <code>null</code> if the backend is not {@link #LOCK_BACKEND_LEASE}.
+     */
+    public String getLeaseFolder() {
+        return leaseFolder;
+    }
+
+    /**
+     * Returns the lease time.
+     * @return Milliseconds after which a lease that is not renewed expires.
+     */
+    public long getLeaseTime() {
+        return leaseTime;
+    }
+
+    /**
+     * Returns whether the work is split among the members.
+     * @return <code>true</code> if each member only locks the files and messages it owns.
+     */
+    public boolean isLockPartitioned() {
+        return lockPartitioned;
+    }
+
+    /**
+     * Sets the lock backend.
+     * @param backend Configured backend.
+     * @param folder Configured folder of the lease files.
+     * @param time Configured lease time.
+     * @param partitioned Configured value for splitting the work among the members.
+     * @throws ConfigException If the configured backend is unknown, the folder does not exist or the time is not valid.
+     */
+    private void setLockBackend(final String backend, final String folder, final String time, final String partitioned) throws ConfigException {
+        if (isNotNullAndNotEmpty(backend)) {
+            lockBackend = backend.trim().toUpperCase();
+            if (!lockBackend.equals(LOCK_BACKEND_RMI) && !lockBackend.equals(LOCK_BACKEND_LEASE)) {
+                throw new ConfigException(Messages.getString("MF_INVALID_VALUE", LOCK_BACKEND_KEY, backend, LOCK_BACKEND_RMI + ", " + LOCK_BACKEND_LEASE)); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        } else {
+            lockBackend = LOCK_BACKEND_RMI;
+        }
+
+        lockPartitioned = isNotNullAndNotEmpty(partitioned) && Boolean.parseBoolean(partitioned.trim());
+
+        /* The lease folder also holds the heartbeats of the members if the work is split. */
+        if (lockBackend.equals(LOCK_BACKEND_LEASE) || lockPartitioned) {
+            leaseFolder = validateFolder(folder, LOCK_LEASE_FOLDER_KEY);
+            if (leaseFolder == null) {
+                throw new ConfigException(Messages.getString("MF_INVALID_FOLDER", LOCK_LEASE_FOLDER_KEY, folder)); //$NON-NLS-1$
+            }
+
+            if (isNotNullAndNotEmpty(time)) {
+                try {
+                    leaseTime = Long.parseLong(time.trim());
+                } catch (NumberFormatException ex) {
+                    throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", LOCK_LEASE_TIME_KEY, time)); //$NON-NLS-1$
+                }
+
+                if (leaseTime < MIN_LEASE_TIME) {
+                    throw new ConfigException(Messages.getString("MF_VALUE_TOO_SMALL", LOCK_LEASE_TIME_KEY, leaseTime, MIN_LEASE_TIME)); //$NON-NLS-1$
+                }
+            } else {
+                leaseTime = DEFAULT_LEASE_TIME;
+            }
+        }
+    }
+
     /**
      * Sets this server rmi service number.
      * @param value Configured rmi service number.
@@ -347,8 +740,14 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
         rmiServiceNumber(cm.getValue(ID_KEY));
         setNumOfDaysKept(cm.getValue(MAX_FILE_AGE_IN_DAYS));
         setMaxNumThreads(cm.getValue(MAX_NUM_THREADS_KEY));
+        setCursorStore(cm.getValue(CURSOR_STORE_KEY), cm.getValue(CURSOR_FOLDER_KEY));
+        setLockBackend(cm.getValue(LOCK_BACKEND_KEY), cm.getValue(LOCK_LEASE_FOLDER_KEY), cm.getValue(LOCK_LEASE_TIME_KEY),
+                cm.getValue(LOCK_PARTITIONED_KEY));
 
         backupFolder = validateFolder(cm.getValue(BACKUP_FOLDER_KEY), BACKUP_FOLDER_KEY);
+        setBackupMode(cm.getValue(BACKUP_MODE_KEY));
+        setProgramLimits(cm.getValue(PROGRAM_MAX_CONCURRENT_KEY), cm.getValue(PROGRAM_QUEUE_SIZE_KEY), cm.getValue(PROGRAM_TIMEOUT_KEY));
+        setProgramBatch(cm.getValue(PROGRAM_BATCH_MAX_FILES_KEY), cm.getValue(PROGRAM_BATCH_WINDOW_KEY));
 
         boolean atLeastOneIFolder = readInputSet(cm);
         boolean atLeastOneOFolder = readOutputSet(cm);
@@ -432,6 +831,12 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
                 key = INPUT_DELAYTIME_KEY + sufix;
                 is.setSleepTime(cm.getValue(key), key);
 
+                key = INPUT_NUM_WORKERS_KEY + sufix;
+                is.setNumWorkers(cm.getValue(key), key);
+
+                is.setOrdered(cm.getValue(INPUT_ORDERED_KEY + sufix));
+                is.setWatch(cm.getValue(INPUT_WATCH_KEY + sufix));
+
                 is.setOkCmd(cm.getValue(ACK_FOLDER_OK_PROGRAM_CMD_LINE_KEY + sufix));
                 is.setFailedCmd(cm.getValue(ACK_FOLDER_FAILED_PROGRAM_CMD_LINE_KEY + sufix));
 
@@ -478,6 +883,9 @@ public class Configuration extends es.ree.eemws.kit.config.Configuration {
                 key = OUTPUT_DELAYTIME_KEY + sufix;
                 os.setSleepTime(cm.getValue(key), key);
 
+                key = OUTPUT_NUM_WORKERS_KEY + sufix;
+                os.setNumWorkers(cm.getValue(key), key);
+
                 key = OUTPUT_URL_KEY + sufix;
                 os.setOutputUrlEndPoint(cm.getValue(key, super.getUrlEndPoint().toString()), key);
 
@@ -21,10 +21,16 @@
 
 package es.ree.eemws.kit.folders;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Enumeration;
@@ -38,7 +44,6 @@ import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 import es.ree.eemws.kit.common.Messages;
-import es.ree.eemws.core.utils.file.FileUtil;
 
 /**
  * Removes all the files with modification timestamp older than the time specified.
@@ -51,11 +56,14 @@ public final class DeleteFilesTask implements Runnable {
 	/** Backup folder. */
 	private String backupFolder;
 
+	/** Whether each run writes a new backup file instead of rewriting the daily one. */
+	private boolean incremental;
+
 	/** Folders to backup and deleted. */
 	private Set<File> folders = new HashSet<>();
 
 	/** Object for message checking generated by other node. */
-	private LockHandler lh;
+	private LockService lh;
 
 	/** Number of days during a generated file will exist. */
 	private int numberOfDays;
@@ -63,21 +71,24 @@ public final class DeleteFilesTask implements Runnable {
 	/** Thread log system. */
 	private static final Logger LOGGER = Logger.getLogger(DeleteFilesTask.class.getName());
 
-	/** 1MB Buffer. */
-	private static final byte[] BUFFER = new byte[1024 * 1024];
+	/** Size of the buffer used to copy the entries of the old backup file. */
+	private static final int BUFFER_SIZE = 64 * 1024;
 
 	/** Nombre del fichero de backup. */
 	private static final String BACKUP_FILE_NAME = "'backup_'ddMMyyyy'.zip'"; //$NON-NLS-1$
 
-	/** Nombre del fichero backup termporal. */
-	private static final String BACKUP_TEMPORARY_FILE = "/tmp.zip"; //$NON-NLS-1$
+	/** Nombre del fichero de backup de cada ejecución en modo incremental. */
+	private static final String INCREMENTAL_BACKUP_FILE_NAME = "'backup_'ddMMyyyy'_'HHmmssSSS'.zip'"; //$NON-NLS-1$
+
+	/** Extensión del fichero backup temporal. */
+	private static final String BACKUP_TEMPORARY_EXTENSION = ".tmp"; //$NON-NLS-1$
 
 	/**
 	 * Constructor.
 	 * @param lockHandler Lock manager. Prevents multiple nodes from creating backup files at once.
 	 * @param config Module settings.
 	 */
-	public DeleteFilesTask(final LockHandler lockHandler, final Configuration config) {
+	public DeleteFilesTask(final LockService lockHandler, final Configuration config) {
 
 	    List<InputConfigurationSet> ics = config.getInputConfigurationSet();
 	    for (InputConfigurationSet ic : ics) {
@@ -95,6 +106,7 @@ public final class DeleteFilesTask implements Runnable {
 	    
 		numberOfDays = config.getNumOfDaysKept();
 		backupFolder = config.getBackupFolder();
+		incremental = Configuration.BACKUP_MODE_INCREMENTAL.equals(config.getBackupMode());
 		lh = lockHandler;
 	}
 
@@ -110,6 +122,7 @@ public final class DeleteFilesTask implements Runnable {
 
     /**
 	 * Delete files in specified folders which modification date is previous or equal to the deletion date.
+	 * The files are deleted only once the backup file that contains them has been written.
 	 */
 	@Override
 	public void run() {
@@ -120,51 +133,39 @@ public final class DeleteFilesTask implements Runnable {
 				cal.add(Calendar.DATE, -numberOfDays);
 				Long deleteDate = cal.getTimeInMillis();
 
-				SimpleDateFormat sdf = new SimpleDateFormat(BACKUP_FILE_NAME);
-				String bakZipName = sdf.format(new Date());
+				Date now = new Date();
+				String bakZipName = new SimpleDateFormat(BACKUP_FILE_NAME).format(now);
 
 				if (lh.tryLock(bakZipName)) {
 
-					/*
-					 * If the temporary directory and the backup directory are in different filesystems, the "move"
-					 * operation could fail. In this point we create a temporary file in the backup folder.
-					 */
-					File tmpZip = new File(backupFolder + BACKUP_TEMPORARY_FILE);
-
-					try (ZipOutputStream zosTmp = new ZipOutputStream(new FileOutputStream(tmpZip));) {
-
-						File backupZipFile = new File(backupFolder + File.separator + bakZipName);
-
-						copyOldBackup(zosTmp, backupZipFile);
-
-						for (File folder : folders) {
-
-							File[] fileList = folder.listFiles();
+					try {
+						List<File> oldFiles = getOldFiles(deleteDate);
 
-							if (fileList != null) {
-
-								for (File file : fileList) {
+						if (!oldFiles.isEmpty()) {
+							File backupZipFile;
+							if (incremental) {
+								backupZipFile = new File(backupFolder, new SimpleDateFormat(INCREMENTAL_BACKUP_FILE_NAME).format(now));
+							} else {
+								backupZipFile = new File(backupFolder, bakZipName);
+							}
 
-									if (file.lastModified() <= deleteDate) {
-										zosTmp.putNextEntry(new ZipEntry(file.getName()));
-										zosTmp.write(FileUtil.readBinary(file.getAbsolutePath()));
-										zosTmp.closeEntry();
+							writeBackup(backupZipFile, oldFiles);
 
-										boolean delete = file.delete();
-										if (!delete) {
-											LOGGER.warning(Messages.getString("MF_UNABLE_TO_DELETE", file.getAbsolutePath())); //$NON-NLS-1$
-										}
-									}
+							for (File file : oldFiles) {
+								boolean delete = file.delete();
+								if (!delete) {
+									LOGGER.warning(Messages.getString("MF_UNABLE_TO_DELETE", file.getAbsolutePath())); //$NON-NLS-1$
 								}
 							}
 						}
 
 					} catch (IOException e) {
 						LOGGER.log(Level.SEVERE, Messages.getString("MF_UNABLE_TO_BACKUP"), e); //$NON-NLS-1$
+
+					} finally {
+						lh.releaseLock(bakZipName);
 					}
 				}
-
-				lh.releaseLock(bakZipName);
 			}
 
 		} catch (Exception ex) {
@@ -174,15 +175,97 @@ public final class DeleteFilesTask implements Runnable {
 		}
 	}
 
+	/**
+	 * Returns the files of the folders which modification date is previous or equal to the deletion date.
+	 * @param deleteDate Deletion date.
+	 * @return Files to backup and delete.
+	 */
+	private List<File> getOldFiles(final long deleteDate) {
+		List<File> retValue = new ArrayList<>();
+
+		for (File folder : folders) {
+
+			File[] fileList = folder.listFiles();
+
+			if (fileList != null) {
+
+				for (File file : fileList) {
+
+					if (file.isFile() && file.lastModified() <= deleteDate) {
+						retValue.add(file);
+					}
+				}
+			}
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Writes the given files into the given backup file. In daily mode the entries of the existing backup file are
+	 * copied first. Each file is streamed into the zip file, so it is never fully loaded in memory.
+	 * 
+	 * If the temporary directory and the backup directory are in different filesystems, the "move" operation could
+	 * fail. The backup is written into a temporary file in the backup folder, which then replaces the backup file.
+	 * @param backupZipFile Backup file.
+	 * @param files Files to backup.
+	 * @throws IOException If the backup file cannot be written.
+	 */
+	private void writeBackup(final File backupZipFile, final List<File> files) throws IOException {
+		File tmpZip = new File(backupFolder, backupZipFile.getName() + BACKUP_TEMPORARY_EXTENSION);
+		Set<String> entryNames = new HashSet<>();
+
+		try (ZipOutputStream zosTmp = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmpZip)))) {
+
+			if (!incremental) {
+				copyOldBackup(zosTmp, backupZipFile, entryNames);
+			}
+
+			for (File file : files) {
+				zosTmp.putNextEntry(new ZipEntry(getEntryName(entryNames, file.getName())));
+				Files.copy(file.toPath(), zosTmp);
+				zosTmp.closeEntry();
+			}
+		}
+
+		try {
+			Files.move(tmpZip.toPath(), backupZipFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmpZip.toPath(), backupZipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		LOGGER.info(Messages.getString("MF_BACKUP_CREATED", backupZipFile.getAbsolutePath(), files.size())); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns a name for a new entry that is not used by any other entry of the zip file.
+	 * Files with the same name can be found in several folders.
+	 * @param entryNames Names of the entries already written. The returned name is added.
+	 * @param name Name of the file.
+	 * @return Entry name.
+	 */
+	private static String getEntryName(final Set<String> entryNames, final String name) {
+		String retValue = name;
+
+		for (int cont = 1; !entryNames.add(retValue); cont++) {
+			retValue = name + "." + cont; //$NON-NLS-1$
+		}
+
+		return retValue;
+	}
+
 	/**
 	 * Copies an existent zip file into other.
 	 * @param zosTmp New Zip file output stream.
 	 * @param backupZipFile Old Zip file reference.
+	 * @param entryNames Names of the entries already written. The names of the copied entries are added.
 	 * @throws IOException If the application cannot write into the new Zip File.
 	 */
-	private void copyOldBackup(final ZipOutputStream zosTmp, final File backupZipFile) throws IOException {
+	private static void copyOldBackup(final ZipOutputStream zosTmp, final File backupZipFile, final Set<String> entryNames) throws IOException {
 		if (backupZipFile.exists()) {
 
+			byte[] buffer = new byte[BUFFER_SIZE];
+
 			try (ZipFile oldZip = new ZipFile(backupZipFile)) {
 
 				Enumeration<? extends ZipEntry> entries = oldZip.entries();
@@ -190,14 +273,20 @@ public final class DeleteFilesTask implements Runnable {
 				while (entries.hasMoreElements()) {
 					ZipEntry e = entries.nextElement();
 
-					zosTmp.putNextEntry(e);
+					/* The compressed size of the old entry is not valid for the new one. */
+					ZipEntry copy = new ZipEntry(e.getName());
+					copy.setTime(e.getTime());
+					entryNames.add(e.getName());
+
+					zosTmp.putNextEntry(copy);
 					if (!e.isDirectory()) {
 
-						int bytesRead;
-						while ((bytesRead = oldZip.getInputStream(e).read(BUFFER)) != -1) {
-							zosTmp.write(BUFFER, 0, bytesRead);
+						try (InputStream is = oldZip.getInputStream(e)) {
+							int bytesRead;
+							while ((bytesRead = is.read(buffer)) != -1) {
+								zosTmp.write(buffer, 0, bytesRead);
+							}
 						}
-
 					}
 					zosTmp.closeEntry();
 				}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.kit.folders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps the last list code of an output group in an append only file.
+ * Each code is written in its own line and the file is synchronized with the disk before returning, so
+ * a crash can only leave an incomplete last line, which is ignored when the file is read.
+ * Once the file has too many lines it is replaced (atomically when possible) by a file with only the last code.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class FileListCursorStore implements ListCursorStore {
+
+    /** Prefix of the cursor files. */
+    private static final String FILE_PREFIX = "cursor_"; //$NON-NLS-1$
+
+    /** Extension of the cursor files. */
+    private static final String FILE_EXTENSION = ".log"; //$NON-NLS-1$
+
+    /** Extension of the temporal file used to compact the cursor file. */
+    private static final String TMP_EXTENSION = ".tmp"; //$NON-NLS-1$
+
+    /** Characters of the output group identification that are kept in the file name. */
+    private static final String INVALID_FILE_NAME_CHARS = "[^A-Za-z0-9._-]"; //$NON-NLS-1$
+
+    /** Max length of the output group identification in the file name. */
+    private static final int MAX_NAME_LENGTH = 100;
+
+    /** Line separator of the cursor file. */
+    private static final char LINE_SEPARATOR = '\n';
+
+    /** Number of lines after which the file is compacted. */
+    private static final int MAX_ENTRIES = 1000;
+
+    /** Separator between the output group identification and the message type. */
+    private static final String TYPE_SEPARATOR = "#"; //$NON-NLS-1$
+
+    /** Folder where the cursor file is kept. */
+    private final Path cursorFolder;
+
+    /** Output group identification. */
+    private final String key;
+
+    /** Cursor file. */
+    private final Path file;
+
+    /** Number of lines of the cursor file. */
+    private int entries = 0;
+
+    /**
+     * Creates a new store for the given output group.
+     * @param folder Existing folder where the cursor file is kept.
+     * @param cursorKey Output group identification.
+     */
+    public FileListCursorStore(final Path folder, final String cursorKey) {
+
+        cursorFolder = folder;
+        key = cursorKey;
+
+        String name = cursorKey.replaceAll(INVALID_FILE_NAME_CHARS, "_"); //$NON-NLS-1$
+        if (name.length() > MAX_NAME_LENGTH) {
+            name = name.substring(0, MAX_NAME_LENGTH);
+        }
+
+        file = folder.resolve(FILE_PREFIX + name + "_" + String.format("%08x", cursorKey.hashCode()) + FILE_EXTENSION); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Reads the last complete line of the cursor file.
+     * @return Stored list code. <code>0</code> if the file does not exist or has no complete line.
+     * @throws IOException If the file cannot be read.
+     */
+    @Override
+    public synchronized long read() throws IOException {
+
+        long retValue = 0;
+        entries = 0;
+
+        if (Files.exists(file)) {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+
+            int start = 0;
+            int end = content.indexOf(LINE_SEPARATOR);
+            while (end != -1) {
+                entries++;
+                try {
+                    retValue = Long.parseLong(content.substring(start, end).trim());
+                } catch (NumberFormatException e) {
+
+                    /* Ignore damaged lines, the previous value is kept. */
+                }
+
+                start = end + 1;
+                end = content.indexOf(LINE_SEPARATOR, start);
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Appends the given code to the cursor file and synchronizes it with the disk.
+     * @param code List code to store.
+     * @throws IOException If the code cannot be written.
+     */
+    @Override
+    public synchronized void write(final long code) throws IOException {
+
+        ByteBuffer line = ByteBuffer.wrap((code + String.valueOf(LINE_SEPARATOR)).getBytes(StandardCharsets.US_ASCII));
+
+        if (entries >= MAX_ENTRIES) {
+            Path tmpFile = file.resolveSibling(file.getFileName().toString() + TMP_EXTENSION);
+            writeLine(tmpFile, line, StandardOpenOption.TRUNCATE_EXISTING);
+
+            try {
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            entries = 1;
+
+        } else {
+            writeLine(file, line, StandardOpenOption.APPEND);
+            entries++;
+        }
+    }
+
+    /**
+     * Returns the store of the given message type, in its own file of the same folder.
+     * @param type Message type.
+     * @return Store of the code of the given type.
+     */
+    @Override
+    public ListCursorStore forType(final String type) {
+
+        return new FileListCursorStore(cursorFolder, key + TYPE_SEPARATOR + type);
+    }
+
+    /**
+     * Writes the given line into the given file and synchronizes the file with the disk.
+     * @param path File to write.
+     * @param line Line to write.
+     * @param mode Whether the line is appended or replaces the file content.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeLine(final Path path, final ByteBuffer line, final StandardOpenOption mode) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+
+            channel.force(false);
+        }
+    }
+}
@@ -21,7 +21,9 @@
 
 package es.ree.eemws.kit.folders;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.file.Paths;
 import java.rmi.RemoteException;
 import java.util.List;
 import java.util.concurrent.Executors;
@@ -32,6 +34,7 @@ import java.util.logging.Logger;
 
 import javax.swing.JOptionPane;
 
+import es.ree.eemws.client.common.ClientIdentity;
 import es.ree.eemws.kit.common.Messages;
 import es.ree.eemws.core.utils.config.ConfigException;
 
@@ -84,13 +87,37 @@ public final class FolderManager {
                 StatusIcon.setIdle();
 
                 /* Creates lock handler. */
-                LockHandler lh = new LockHandler(config);
+                LockService lh;
+                if (config.getLockBackend().equals(Configuration.LOCK_BACKEND_LEASE)) {
+                    lh = new LeaseLockHandler(config);
+                } else {
+                    lh = new LockHandler(config);
+                }
+
+                if (config.isLockPartitioned()) {
+                    lh = new PartitionedLockService(lh, config);
+                }
 
             	scheduler = Executors.newScheduledThreadPool(config.getMaxNumThreads());
 
+            	ProgramExecutor.configure(config);
+            	MagicFolderPlugins.load(config);
+
+            	ClientIdentity identity = config.getIdentity();
+
             	List<InputConfigurationSet> ics = config.getInputConfigurationSet();
             	for (InputConfigurationSet ic : ics) {
-                    scheduler.scheduleAtFixedRate(new InputTask(lh, ic), 0, ic.getSleepTime(), TimeUnit.MILLISECONDS);
+            	    InputTask it = new InputTask(lh, ic, identity);
+                    scheduler.scheduleAtFixedRate(it, 0, ic.getSleepTime(), TimeUnit.MILLISECONDS);
+
+                    /* The scheduled task is kept as a safety rescan of the watched folder. */
+                    if (ic.isWatch()) {
+                        try {
+                            new InputFolderWatcher(ic, it, scheduler).start();
+                        } catch (IOException ex) {
+                            LOGGER.log(Level.WARNING, Messages.getString("MF_UNABLE_TO_WATCH", ic.getIndex(), ic.getInputFolder()), ex); //$NON-NLS-1$
+                        }
+                    }
                	}
  
             	for (List<OutputConfigurationSet> lst : config.getOutputConfigurationSet()) {
@@ -115,7 +142,17 @@ public final class FolderManager {
             	    }
             	                	    
             	    LOGGER.info(Messages.getString("MF_CONFIG_DELAY_TIME_O", setIds, sleep));   //$NON-NLS-1$
-            	    scheduler.scheduleAtFixedRate(new OutputTask(lh, lst, setIds), 0, sleep, TimeUnit.MILLISECONDS);
+
+            	    /* Each output group keeps its own list code. */
+            	    String cursorKey = lst.get(0).getOutputUrlEndPoint().toString() + setIds;
+            	    ListCursorStore cursorStore;
+            	    if (config.getCursorStoreType().equals(Configuration.CURSOR_STORE_PREFERENCES)) {
+            	        cursorStore = new PreferencesListCursorStore(cursorKey);
+            	    } else {
+            	        cursorStore = new FileListCursorStore(Paths.get(config.getCursorFolder()), cursorKey);
+            	    }
+
+            	    scheduler.scheduleAtFixedRate(new OutputTask(lh, lst, setIds, cursorStore, identity), 0, sleep, TimeUnit.MILLISECONDS);
                 }
                  	
                 /* Create deletion / backup folder. */
@@ -39,6 +39,12 @@ public final class InputConfigurationSet extends Configuration {
 
     /** Default delay time for loops in milliseconds. */
     private static final long DEFAULT_INPUT_DELAY = 180000L; 
+
+    /** Default number of workers that send files concurrently. */
+    private static final int DEFAULT_NUM_WORKERS = 1;
+
+    /** Max number of workers that send files concurrently. */
+    private static final int MAX_NUM_WORKERS = 25;
    
     /** Input folder. */
     private String inputFolder;
@@ -64,6 +70,15 @@ public final class InputConfigurationSet extends Configuration {
     /** Sleep between run loops. */
     private long sleepTimeInput;
 
+    /** Number of workers that send files concurrently. */
+    private int numWorkers = DEFAULT_NUM_WORKERS;
+
+    /** Whether the files must be sent one by one in order of modification time. */
+    private boolean ordered = false;
+
+    /** Whether the input folder is watched for changes. */
+    private boolean watch = false;
+
     /** Url end point. */
     private URL endPoint;
 
@@ -244,6 +259,70 @@ public final class InputConfigurationSet extends Configuration {
         }
     }
 
+    /**
+     * Sets the number of workers that send files concurrently.
+     * @param value Configured number of workers.
+     * @param label Current number of workers configuration label.
+     * @throws ConfigException If the given value is not a number.
+     */
+    public void setNumWorkers(final String value, final String label) throws ConfigException {
+        if (isNotNullAndNotEmpty(value)) {
+            try {
+                numWorkers = Integer.parseInt(value.trim());
+                if (numWorkers < DEFAULT_NUM_WORKERS) {
+                    throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", label, value)); //$NON-NLS-1$
+                }
+                if (numWorkers > MAX_NUM_WORKERS) {
+                    numWorkers = MAX_NUM_WORKERS;
+                }
+            } catch (NumberFormatException ex) {
+                throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", label, value)); //$NON-NLS-1$
+            }
+        } else {
+            numWorkers = DEFAULT_NUM_WORKERS;
+        }
+    }
+
+    /**
+     * Returns the number of workers that send files concurrently.
+     * @return Number of workers that send files concurrently.
+     */
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    /**
+     * Sets whether the files must be sent one by one in order of modification time.
+     * @param value Configured value (<code>true</code> or <code>false</code>).
+     */
+    public void setOrdered(final String value) {
+        ordered = isNotNullAndNotEmpty(value) && Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Returns whether the files must be sent one by one in order of modification time.
+     * @return <code>true</code> if the files must be sent in order.
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Sets whether the input folder is watched for changes.
+     * @param value Configured value (<code>true</code> or <code>false</code>).
+     */
+    public void setWatch(final String value) {
+        watch = isNotNullAndNotEmpty(value) && Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Returns whether the input folder is watched for changes.
+     * @return <code>true</code> if new files are detected as soon as they are created.
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+
     /**
      * Sets this set url endpoint.
      * @param urlEndPoint This set url endpoint.
@@ -303,7 +382,17 @@ public final class InputConfigurationSet extends Configuration {
         }
 
         msg.append(TAB).append(Messages.getString("MF_CONFIG_DELAY_TIME_I", index, sleepTimeInput)); //$NON-NLS-1$
+
+        if (watch) {
+            msg.append(TAB).append(Messages.getString("MF_CONFIG_WATCH_I", index)); //$NON-NLS-1$
+        }
         msg.append(TAB).append(Messages.getString("MF_CONFIG_URL_I", index, endPoint.toString())); //$NON-NLS-1$
+
+        if (ordered) {
+            msg.append(TAB).append(Messages.getString("MF_CONFIG_ORDERED_I", index)); //$NON-NLS-1$
+        } else {
+            msg.append(TAB).append(Messages.getString("MF_CONFIG_NUM_WORKERS_I", index, numWorkers)); //$NON-NLS-1$
+        }
         
         return msg.toString();
     }
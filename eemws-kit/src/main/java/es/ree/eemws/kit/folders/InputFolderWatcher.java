@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.kit.folders;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.ree.eemws.kit.common.Messages;
+
+/**
+ * Watches an input folder and runs its input task as soon as a file is created or modified.
+ * The input task is still scheduled with the configured sleep time as a safety rescan.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class InputFolderWatcher implements Runnable {
+
+    /** Logging. */
+    private static final Logger LOGGER = Logger.getLogger(InputFolderWatcher.class.getName());
+
+    /** Prefix of the name of the watcher threads. */
+    private static final String THREAD_NAME_PREFIX = "input-watcher-"; //$NON-NLS-1$
+
+    /** Watch service of the input folder. */
+    private final WatchService watchService;
+
+    /** Task that processes the input folder. */
+    private final InputTask task;
+
+    /** Executor that runs the input task. */
+    private final Executor executor;
+
+    /** Input set index (for log purposes). */
+    private final int index;
+
+    /**
+     * Creates a new watcher for the input folder of the given set.
+     * @param ic Input configuration set.
+     * @param inputTask Task that processes the input folder.
+     * @param exec Executor that runs the input task.
+     * @throws IOException If the input folder cannot be watched.
+     */
+    public InputFolderWatcher(final InputConfigurationSet ic, final InputTask inputTask, final Executor exec) throws IOException {
+
+        Path folder = Paths.get(ic.getInputFolder());
+        watchService = folder.getFileSystem().newWatchService();
+        folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        task = inputTask;
+        executor = exec;
+        index = ic.getIndex();
+    }
+
+    /**
+     * Starts watching the input folder in a new (daemon) thread.
+     */
+    public void start() {
+
+        Thread thread = new Thread(this, THREAD_NAME_PREFIX + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for changes in the input folder and runs the input task for each of them.
+     * Several changes detected while the task is running lead to a single new run.
+     */
+    @Override
+    public void run() {
+
+        boolean loop = true;
+
+        try {
+            while (loop) {
+                WatchKey key = watchService.take();
+                key.pollEvents();
+                executor.execute(task);
+
+                /* The key is no longer valid if the folder is removed or becomes inaccessible. */
+                loop = key.reset();
+            }
+
+            LOGGER.warning(Messages.getString("MF_WATCH_STOPPED", index)); //$NON-NLS-1$
+
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.FINE, Messages.getString("MF_WATCH_STOPPED", index), ex); //$NON-NLS-1$
+
+        } finally {
+            try {
+                watchService.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, Messages.getString("MF_WATCH_STOPPED", index), ex); //$NON-NLS-1$
+            }
+        }
+    }
+}
@@ -23,6 +23,21 @@ package es.ree.eemws.kit.folders;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +45,7 @@ import javax.xml.bind.JAXBException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 
+import es.ree.eemws.client.common.ClientIdentity;
 import es.ree.eemws.client.put.PutMessage;
 import es.ree.eemws.core.utils.error.EnumErrorCatalog;
 import es.ree.eemws.core.utils.file.FileUtil;
@@ -52,7 +68,7 @@ public final class InputTask implements Runnable {
     private static final String RESPONSE_ID_PREFIX = "ack_"; //$NON-NLS-1$
     
     /** Object for checking messages sent by another module. */
-    private final LockHandler lh;
+    private final LockService lh;
 
     /** Put message operation object. */
     private PutMessage putMessage;
@@ -68,76 +84,147 @@ public final class InputTask implements Runnable {
 
     /** Number of millisconds between file size checks. */
     private static final long SLEEP_BETWEEN_READS = 500;
+
+    /** Executor that sends the files concurrently. <code>null</code> if files are sent one by one. */
+    private ExecutorService workers = null;
+
+    /** Whether the input folder is being processed. */
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /** Whether the input folder must be processed (again). */
+    private final AtomicBoolean scanRequested = new AtomicBoolean(false);
    
     /**
      * Creates a Input task in order to sent the files in the configured folder to a server.
      * @param lockHandler Lock manager to synchronize the work.
      * @param ic This task configuration set.
+     * @param identity Identity used to sign the messages and authenticate the connections. <code>null</code> to use the system settings.
      * @throws MalformedURLException If cannot obtain an URL to access attachment services.
      */
-    public InputTask(final LockHandler lockHandler, final InputConfigurationSet ic) throws MalformedURLException {
+    public InputTask(final LockService lockHandler, final InputConfigurationSet ic, final ClientIdentity identity) throws MalformedURLException {
      
         lh = lockHandler;
         ics = ic;
         icsIndex = ics.getIndex();
         putMessage = new PutMessage();
         putMessage.setEndPoint(ic.getInputUrlEndPoint());
+        putMessage.setIdentity(identity);
         LOGGER.info(ic.toString());
+
+        if (ic.getNumWorkers() > 1 && !ic.isOrdered()) {
+            workers = Executors.newFixedThreadPool(ic.getNumWorkers());
+        }
     }
 
     /**
-     * Checks whether the given file is complete. Checks file size, waits for a while and checks
-     * its size again. If the size remains the same, the file is considered to be complete.
-     * @param file Reference to the input file.
-     * @return <code>true</code> When complete, <code>false</code> otherwise.
+     * Returns the given files that are complete. Checks the size of all the files, waits for a while and checks
+     * their sizes again. Files whose size remains the same are considered to be complete.
+     * The wait is done once for the whole list of files.
+     * @param files Reference to the input files.
+     * @return List of complete files, in the same order.
      */
-    private boolean isComplete(final File file) {
+    private static List<File> getCompleteFiles(final List<File> files) {
 
-        long initialSize = file.length();
-        long finalSize = initialSize;
-        boolean complete = false;
+        List<File> retValue = new ArrayList<>();
+        long[] initialSizes = new long[files.size()];
+        boolean anyFile = false;
 
-        if (initialSize > 0) {
+        for (int cont = 0; cont < initialSizes.length; cont++) {
+            initialSizes[cont] = files.get(cont).length();
+            anyFile = anyFile || initialSizes[cont] > 0;
+        }
+
+        if (anyFile) {
             try {
                 Thread.sleep(SLEEP_BETWEEN_READS);
             } catch (InterruptedException e) {
                 LOGGER.finer("Wait interrupted"); // Don't mind! //$NON-NLS-1$
             }
-            finalSize = file.length();
 
-            complete = (finalSize == initialSize);
+            for (int cont = 0; cont < initialSizes.length; cont++) {
+                File file = files.get(cont);
+                if (initialSizes[cont] > 0 && file.length() == initialSizes[cont]) {
+                    retValue.add(file);
+                }
+            }
         }
 
-        return complete;
+        return retValue;
     }
 
     /**
      * Detects files in input folder. 
-     * Sends them to the server 
+     * Sends them to the server.
+     * The task can be run by the scheduler and by the folder watcher at the same time: if the folder
+     * is already being processed, another pass is done once the current one ends.
      */
     @Override
     public void run() {
+
+        scanRequested.set(true);
+
+        boolean loop = true;
+        while (loop && running.compareAndSet(false, true)) {
+            try {
+                while (scanRequested.getAndSet(false)) {
+                    scanFolder();
+                }
+            } finally {
+                running.set(false);
+            }
+
+            /* A request could arrive just before the running flag was cleared. */
+            loop = scanRequested.get();
+        }
+    }
+
+    /**
+     * Detects files in input folder and sends them to the server.
+     */
+    private void scanFolder() {
         
-        String fileName = null;
+        List<File> lockedFiles = new ArrayList<>();
         
         try {
             File f = new File(ics.getInputFolder());
             File[] files = f.listFiles();
 
             if (files != null) {
-                boolean lockFile;
                 StatusIcon.setBusy();
 
+                /* All the files of the scan are locked at once. */
+                Map<String, File> filesByName = new LinkedHashMap<>();
                 for (File file : files) {
-                    fileName = file.getName();
-                    lockFile = lh.tryLock(fileName);
+                    filesByName.put(file.getName(), file);
+                }
 
-                    if (lockFile && isComplete(file)) {
-                        process(file);
-                    }
+                for (String name : lh.tryLock(filesByName.keySet())) {
+                    lockedFiles.add(filesByName.get(name));
+                }
+
+                List<File> completeFiles = getCompleteFiles(lockedFiles);
 
-                    lh.releaseLock(fileName);
+                if (ics.isOrdered()) {
+                    Collections.sort(completeFiles, new Comparator<File>() {
+
+                        @Override
+                        public int compare(final File f1, final File f2) {
+                            int retValue = Long.compare(f1.lastModified(), f2.lastModified());
+                            if (retValue == 0) {
+                                retValue = f1.getName().compareTo(f2.getName());
+                            }
+
+                            return retValue;
+                        }
+                    });
+                }
 
+                if (workers == null) {
+                    for (File file : completeFiles) {
+                        process(file);
+                    }
+                } else {
+                    processConcurrently(completeFiles);
                 }
 
                 StatusIcon.setIdle();
@@ -147,8 +234,39 @@ public final class InputTask implements Runnable {
             /* Defensive exception, if runnable task ends with exception won't be exectued againg! */
             LOGGER.log(Level.SEVERE, Messages.getString("MF_UNEXPECTED_ERROR_I", icsIndex), ex); //$NON-NLS-1$
         } finally {
-            if (fileName != null) {
-                lh.releaseLock(fileName);
+            List<String> lockedNames = new ArrayList<>();
+            for (File file : lockedFiles) {
+                lockedNames.add(file.getName());
+            }
+
+            lh.releaseLock(lockedNames);
+        }
+    }
+
+    /**
+     * Sends the given files using the workers. Waits until all the files are processed.
+     * @param files Files to send.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    private void processConcurrently(final List<File> files) throws InterruptedException {
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final File file : files) {
+            tasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call() {
+                    process(file);
+                    return null;
+                }
+            });
+        }
+
+        for (Future<Void> result : workers.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException ex) {
+                LOGGER.log(Level.SEVERE, Messages.getString("MF_UNEXPECTED_ERROR_I", icsIndex), ex.getCause()); //$NON-NLS-1$
             }
         }
     }
@@ -161,22 +279,23 @@ public final class InputTask implements Runnable {
 
         String fileName = file.getName();
         String fullFileName = file.getAbsolutePath();
+        MessageMetaData metaData = new MessageMetaData();
 
         try {
 
             /* Send. */
             LOGGER.info(Messages.getString("MF_SENDING_MESSAGE", icsIndex, fileName)); //$NON-NLS-1$
-            StringBuilder response = new StringBuilder(putMessage.put(new StringBuilder(FileUtil.readUTF8(fullFileName))));
+            StringBuilder response = new StringBuilder(putMessage.put(file.toPath(), metaData));
             LOGGER.info(Messages.getString("MF_SENT_MESSAGE", icsIndex, fileName)); //$NON-NLS-1$
 
             moveOnceProcessed(file);
 
-            saveAndExecuteAck(file, response);
+            saveAndExecuteAck(file, response, metaData);
 
         } catch (PutOperationException ex) {
 
             /* Set status as failed, this is an exception!. */
-            putMessage.getMessageMetaData().setStatus(EnumMessageStatus.FAILED);
+            metaData.setStatus(EnumMessageStatus.FAILED);
             
             String code = ex.getCode();
             
@@ -184,14 +303,14 @@ public final class InputTask implements Runnable {
             if (code.equals(EnumErrorCatalog.ERR_HAND_010.getCode())) {
 
                 LOGGER.severe(Messages.getString("MF_SERVER_RETURNS_FAULT", icsIndex, fullFileName, ex.getCause().getMessage())); //$NON-NLS-1$
-                saveAndExecuteAck(file, new StringBuilder(putMessage.getMessageMetaData().getRejectText()));
+                saveAndExecuteAck(file, new StringBuilder(metaData.getRejectText()), metaData);
 
             } else {
                 
                 /* Magic folder needs a file, build a "fake" fault using the exception. */
                 try {
                     String fault = XMLElementUtil.element2String(XMLElementUtil.obj2Element(FaultUtil.getFaultMessageFromException(ex.getMessage(), ex.getCode())));
-                    saveAndExecuteAck(file, new StringBuilder(fault));
+                    saveAndExecuteAck(file, new StringBuilder(fault), metaData);
                     
                 } catch (TransformerException |  ParserConfigurationException |  JAXBException e) {
                     LOGGER.log(Level.SEVERE, Messages.getString("MF_CANNOT_CREATE_FAULT_MSG", icsIndex), e); //$NON-NLS-1$
@@ -228,7 +347,7 @@ public final class InputTask implements Runnable {
             if (ics.getProcessedFolder() != null) {
                 String processedFilePath = ics.getProcessedFolder() + File.separator + fileName;
                 execContext = Messages.getString("MF_SAVING_PROCESS_FOLDER", icsIndex, fullFileName, processedFilePath); //$NON-NLS-1$
-                FileUtil.writeUTF8(processedFilePath, FileUtil.readUTF8(fullFileName));
+                Files.copy(file.toPath(), Paths.get(processedFilePath), StandardCopyOption.REPLACE_EXISTING);
             }
 
             execContext = Messages.getString("MF_UNABLE_TO_DELETE_INPUT_FILE", icsIndex, fullFileName); //$NON-NLS-1$
@@ -246,8 +365,9 @@ public final class InputTask implements Runnable {
      * Then runs the configured scripts / programs
      * @param file Input file name (for log purposes)
      * @param response Server response as string.
+     * @param metaData Metadata of the put call, holds the status of the response.
      */
-    private void saveAndExecuteAck(final File file, final StringBuilder response) {
+    private void saveAndExecuteAck(final File file, final StringBuilder response, final MessageMetaData metaData) {
 
         String execContext = ""; //$NON-NLS-1$
         String fileName = file.getName();
@@ -265,7 +385,6 @@ public final class InputTask implements Runnable {
                 FileUtil.writeUTF8(ackFilePath, response.toString());
             }
 
-            MessageMetaData metaData = putMessage.getMessageMetaData();
             status = metaData.getStatus();
             if (status == null) {
                 status = EnumMessageStatus.OK;
@@ -303,6 +422,8 @@ public final class InputTask implements Runnable {
                     }
                 }
             }
+
+            MagicFolderPlugins.acknowledgementReceived(file, status, response.toString());
             
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, execContext, ex);
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.kit.folders;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.ree.eemws.kit.common.Messages;
+
+/**
+ * Lock service based on lease files kept in a folder shared by all the members of the working group.
+ * A name is locked by creating a lease file of a new generation (<code>name.generation.lease</code>), which fails
+ * if the file already exists. The leases held by this member are renewed periodically, so the lease of a member
+ * that crashed expires after the configured lease time. An expired lease is never renamed nor overwritten: it is
+ * taken by creating the lease file of the next generation, so only one member can take it. A lease is valid only
+ * while it is the only live lease of its name, members that created a lease from an outdated view of the folder
+ * remove it. Members only renew and remove the lease files whose content is the one they wrote.
+ * No member waits for any other member.
+ * Note that the clocks of the members and of the shared folder must be synchronized.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class LeaseLockHandler implements LockService {
+
+    /** Extension of the lease files. */
+    private static final String LEASE_EXTENSION = ".lease"; //$NON-NLS-1$
+
+    /** Separator of the name and the generation in the name of the lease files. */
+    private static final String GENERATION_SEPARATOR = "."; //$NON-NLS-1$
+
+    /** Separator of the owner and the unique token in the content of the lease files. */
+    private static final String TOKEN_SEPARATOR = " "; //$NON-NLS-1$
+
+    /** Leases are renewed this number of times per lease time. */
+    private static final int RENEWALS_PER_LEASE = 3;
+
+    /** Name of the renewal thread. */
+    private static final String THREAD_NAME = "lease-renewal"; //$NON-NLS-1$
+
+    /** Logging system. */
+    private static final Logger LOGGER = Logger.getLogger(LeaseLockHandler.class.getName());
+
+    /** Folder of the lease files. */
+    private final Path leaseFolder;
+
+    /** Milliseconds after which a lease that is not renewed expires. */
+    private final long leaseTime;
+
+    /** Identification of this member, written in the lease files. */
+    private final String owner;
+
+    /** Leases held by this member, by name. */
+    private final Map<String, Lease> leases = new HashMap<>();
+
+    /** Number of names that this member tried to lock. */
+    private final AtomicLong lockRequests = new AtomicLong();
+
+    /** Number of names that were locked by another member when this member tried to lock them. */
+    private final AtomicLong lockConflicts = new AtomicLong();
+
+    /** Number of leases that this member lost because another member took them. */
+    private final AtomicLong lockEvictions = new AtomicLong();
+
+    /**
+     * Lease file held by this member and the content written in it.
+     */
+    private static final class Lease {
+
+        /** Lease file. */
+        private final Path file;
+
+        /** Content written in the file, unique for each lease. */
+        private final byte[] content;
+
+        /**
+         * Constructor.
+         * @param leaseFile Lease file.
+         * @param leaseContent Content written in the file.
+         */
+        Lease(final Path leaseFile, final byte[] leaseContent) {
+            file = leaseFile;
+            content = leaseContent;
+        }
+    }
+
+    /**
+     * Constructor. Creates a new lock service according to the configuration and starts renewing its leases.
+     * @param config System settings.
+     */
+    public LeaseLockHandler(final Configuration config) {
+
+        this(Paths.get(config.getLeaseFolder()), config.getLeaseTime(), getOwnerId(config));
+    }
+
+    /**
+     * Creates a new lock service with the given values and starts renewing its leases.
+     * @param folder Folder of the lease files.
+     * @param time Milliseconds after which a lease that is not renewed expires.
+     * @param ownerId Identification of this member, written in the lease files.
+     */
+    LeaseLockHandler(final Path folder, final long time, final String ownerId) {
+
+        leaseFolder = folder;
+        leaseTime = time;
+        owner = ownerId;
+
+        ScheduledExecutorService renewal = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        long period = leaseTime / RENEWALS_PER_LEASE;
+        renewal.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                renewLeases();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        LOGGER.info(Messages.getString("MF_LEASE_FOLDER", leaseFolder, leaseTime)); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns the identification of this member.
+     * @param config System settings.
+     * @return Instance id (if any) and process name.
+     */
+    private static String getOwnerId(final Configuration config) {
+
+        String retValue = ManagementFactory.getRuntimeMXBean().getName();
+        if (config.getInstanceID() != null) {
+            retValue = config.getInstanceID() + "@" + retValue; //$NON-NLS-1$
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Tries to lock the given name by creating a lease file.
+     * If there is no lease the first generation is created. If the last lease has expired, the next generation
+     * is created.
+     * @param name Name of the file or message to lock.
+     * @return <code>true</code> if the name was locked, <code>false</code> if it is locked by another member.
+     */
+    @Override
+    public boolean tryLock(final String name) {
+
+        boolean retValue = false;
+        boolean held;
+        synchronized (leases) {
+            held = leases.containsKey(name);
+        }
+
+        if (!held) {
+            lockRequests.incrementAndGet();
+
+            try {
+                TreeMap<Long, Path> current = getLeases(name);
+                if (current.isEmpty()) {
+                    retValue = takeLease(name, 0);
+                } else if (isExpired(current.lastEntry().getValue())) {
+                    LOGGER.info(Messages.getString("MF_LEASE_EXPIRED", name, readOwner(current.lastEntry().getValue()))); //$NON-NLS-1$
+                    retValue = takeLease(name, current.lastKey() + 1);
+                }
+
+                if (!retValue) {
+                    lockConflicts.incrementAndGet();
+                }
+
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, Messages.getString("MF_LEASE_ERROR", leaseFolder), e); //$NON-NLS-1$
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Tries to lock the given names. Each name is locked independently, no member is asked.
+     * @param names Names of the files or messages to lock.
+     * @return Names that were locked, in the same order.
+     */
+    @Override
+    public List<String> tryLock(final Collection<String> names) {
+
+        List<String> retValue = new ArrayList<>();
+        for (String name : names) {
+            if (tryLock(name)) {
+                retValue.add(name);
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Releases the given name by removing its lease file, only if the file is still the one written by this member.
+     * @param name Name of the file or message to release.
+     */
+    @Override
+    public void releaseLock(final String name) {
+
+        Lease lease;
+        synchronized (leases) {
+            lease = leases.remove(name);
+        }
+
+        if (lease != null) {
+            try {
+                if (isOwn(lease)) {
+                    Files.delete(lease.file);
+                } else {
+                    lockEvictions.incrementAndGet();
+                    LOGGER.warning(Messages.getString("MF_LEASE_LOST", lease.file)); //$NON-NLS-1$
+                }
+
+            } catch (NoSuchFileException e) {
+                lockEvictions.incrementAndGet();
+                LOGGER.warning(Messages.getString("MF_LEASE_LOST", lease.file)); //$NON-NLS-1$
+
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, Messages.getString("MF_LEASE_ERROR", lease.file), e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Releases the given names by removing their lease files.
+     * @param names Names of the files or messages to release.
+     */
+    @Override
+    public void releaseLock(final Collection<String> names) {
+
+        for (String name : names) {
+            releaseLock(name);
+        }
+    }
+
+    /**
+     * The work is not split among the members: every member tries to lock every name.
+     * @return <code>0</code>.
+     */
+    @Override
+    public long getRebalanceTime() {
+
+        return 0;
+    }
+
+    /**
+     * Returns the number of names currently locked by this member.
+     * @return Number of leases held.
+     */
+    @Override
+    public int getLockedCount() {
+
+        synchronized (leases) {
+            return leases.size();
+        }
+    }
+
+    /**
+     * Returns the number of names that this member tried to lock (names already locked by it are not counted).
+     * @return Number of lock requests.
+     */
+    @Override
+    public long getLockRequests() {
+
+        return lockRequests.get();
+    }
+
+    /**
+     * Returns the number of names that had a live lease of another member when this member tried to lock them.
+     * @return Number of conflicts.
+     */
+    @Override
+    public long getLockConflicts() {
+
+        return lockConflicts.get();
+    }
+
+    /**
+     * Returns the number of leases that this member lost because another member took them.
+     * @return Number of evictions.
+     */
+    @Override
+    public long getLockEvictions() {
+
+        return lockEvictions.get();
+    }
+
+    /**
+     * Creates the lease file of the given generation. The lease is kept only if no other member holds a live lease
+     * of the same name: a member can create a lease from an outdated view of the folder (i.e. the generations
+     * start again once all the leases are released). Expired leases of the name are removed.
+     * @param name Name to lock.
+     * @param generation Generation of the new lease.
+     * @return <code>true</code> if the name was locked.
+     */
+    boolean takeLease(final String name, final long generation) {
+
+        boolean retValue = false;
+        Path file = leaseFolder.resolve(name + GENERATION_SEPARATOR + generation + LEASE_EXTENSION);
+        Lease lease = new Lease(file, (owner + TOKEN_SEPARATOR + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8));
+
+        try {
+            Files.write(file, lease.content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+            Path other = getOtherLiveLease(name, file);
+            if (other == null) {
+                for (Path expired : getLeases(name).values()) {
+                    if (!expired.equals(file)) {
+                        Files.deleteIfExists(expired);
+                    }
+                }
+
+                synchronized (leases) {
+                    leases.put(name, lease);
+                }
+
+                retValue = true;
+
+            } else {
+                LOGGER.info(Messages.getString("MF_LEASE_TAKEN_MEANWHILE", name, readOwner(other))); //$NON-NLS-1$
+                Files.delete(file);
+            }
+
+        } catch (FileAlreadyExistsException e) {
+            LOGGER.finest("Locked by another member: " + name); //$NON-NLS-1$
+
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, Messages.getString("MF_LEASE_ERROR", file), e); //$NON-NLS-1$
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Renews the leases held by this member by updating the modification time of their files.
+     * A lease whose file was not written by this member, or that is not the only live lease of its name, has been
+     * taken by another member: it is dropped without touching the file.
+     */
+    void renewLeases() {
+
+        Map<String, Lease> held;
+        synchronized (leases) {
+            held = new HashMap<>(leases);
+        }
+
+        for (Map.Entry<String, Lease> entry : held.entrySet()) {
+            Lease lease = entry.getValue();
+            boolean lost;
+
+            try {
+                lost = !isOwn(lease) || getOtherLiveLease(entry.getKey(), lease.file) != null;
+                if (!lost) {
+                    Files.setLastModifiedTime(lease.file, FileTime.fromMillis(System.currentTimeMillis()));
+                }
+
+            } catch (NoSuchFileException e) {
+                lost = true;
+
+            } catch (IOException e) {
+                lost = false;
+                LOGGER.log(Level.WARNING, Messages.getString("MF_LEASE_ERROR", lease.file), e); //$NON-NLS-1$
+            }
+
+            if (lost) {
+                LOGGER.warning(Messages.getString("MF_LEASE_LOST", lease.file)); //$NON-NLS-1$
+                synchronized (leases) {
+                    if (leases.get(entry.getKey()) == lease) {
+                        leases.remove(entry.getKey());
+                        lockEvictions.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the lease files of the given name.
+     * @param name Locked name.
+     * @return Lease files by generation.
+     * @throws IOException If the lease folder cannot be read.
+     */
+    private TreeMap<Long, Path> getLeases(final String name) throws IOException {
+
+        TreeMap<Long, Path> retValue = new TreeMap<>();
+        String prefix = name + GENERATION_SEPARATOR;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(leaseFolder)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.startsWith(prefix) && fileName.endsWith(LEASE_EXTENSION)) {
+                    String generation = fileName.substring(prefix.length(), fileName.length() - LEASE_EXTENSION.length());
+                    if (generation.matches("[0-9]+")) { //$NON-NLS-1$
+                        retValue.put(Long.valueOf(generation), file);
+                    }
+                }
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Returns a live lease of the given name other than the given file.
+     * @param name Locked name.
+     * @param file Lease file of this member.
+     * @return Live lease file of another member, <code>null</code> if there is none.
+     * @throws IOException If the lease folder cannot be read.
+     */
+    private Path getOtherLiveLease(final String name, final Path file) throws IOException {
+
+        Path retValue = null;
+
+        for (Path lease : getLeases(name).values()) {
+            if (retValue == null && !lease.equals(file) && !isExpired(lease)) {
+                retValue = lease;
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Checks whether the given lease file has expired.
+     * @param lease Lease file.
+     * @return <code>true</code> if the lease was not renewed within the lease time or if it no longer exists.
+     * @throws IOException If the file cannot be read.
+     */
+    private boolean isExpired(final Path lease) throws IOException {
+
+        boolean retValue;
+
+        try {
+            retValue = System.currentTimeMillis() - Files.getLastModifiedTime(lease).toMillis() > leaseTime;
+        } catch (NoSuchFileException e) {
+            retValue = true;
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Checks whether the file of the given lease still has the content written by this member.
+     * @param lease Lease of this member.
+     * @return <code>true</code> if the file was written by this member.
+     * @throws IOException If the file cannot be read.
+     */
+    private static boolean isOwn(final Lease lease) throws IOException {
+
+        return Arrays.equals(Files.readAllBytes(lease.file), lease.content);
+    }
+
+    /**
+     * Returns the owner written in the given lease file.
+     * @param lease Lease file.
+     * @return Owner of the lease, empty if the file no longer exists.
+     * @throws IOException If the file cannot be read.
+     */
+    private static String readOwner(final Path lease) throws IOException {
+
+        String retValue = ""; //$NON-NLS-1$
+
+        try {
+            retValue = new String(Files.readAllBytes(lease), StandardCharsets.UTF_8);
+            int separator = retValue.lastIndexOf(TOKEN_SEPARATOR);
+            if (separator != -1) {
+                retValue = retValue.substring(0, separator);
+            }
+        } catch (NoSuchFileException e) {
+            retValue = ""; //$NON-NLS-1$
+        }
+
+        return retValue;
+    }
+}
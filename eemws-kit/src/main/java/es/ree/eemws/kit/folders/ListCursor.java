@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.kit.folders;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.ree.eemws.kit.common.Messages;
+
+/**
+ * Code from which a list continues, kept in a store.
+ * The code moves to the highest code listed, but never beyond a message that is being retrieved or whose
+ * retrieval failed: those messages are listed again in the next cycle, or after a restart if the code was stored.
+ * All the methods can be called from several threads (the workers that retrieve the messages).
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+final class ListCursor {
+
+    /** Max number of list codes kept in the history. */
+    private static final int MAX_LIST_CODE_HISTORY = 1000;
+
+    /** Log system. */
+    private static final Logger LOGGER = Logger.getLogger(ListCursor.class.getName());
+
+    /** Identification of the list in the log messages. */
+    private final String name;
+
+    /** Store of the code. */
+    private final ListCursorStore store;
+
+    /** Code from which the next list continues. */
+    private long lastListCode;
+
+    /** Last code written in the store. */
+    private long storedListCode;
+
+    /** Highest code listed in the current cycle. */
+    private long highestListedCode;
+
+    /** Codes of the messages being retrieved and of the messages whose retrieval failed in the current cycle. */
+    private final TreeSet<Long> pendingCodes = new TreeSet<>();
+
+    /** List code at the start of the last cycles, by time. */
+    private final TreeMap<Long, Long> listCodeHistory = new TreeMap<>();
+
+    /** Last rebalance time of the lock service already handled. */
+    private long lastRebalanceTime = 0;
+
+    /**
+     * Creates a new cursor with the code kept in the given store.
+     * @param listName Identification of the list in the log messages.
+     * @param cursorStore Store of the code.
+     * @param defaultCode Code used if the store has no code (i.e. kept by a previous version in another store).
+     */
+    ListCursor(final String listName, final ListCursorStore cursorStore, final long defaultCode) {
+
+        name = listName;
+        store = cursorStore;
+
+        try {
+            lastListCode = store.read();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, Messages.getString("MF_UNABLE_TO_READ_LIST_CODE", name), e); //$NON-NLS-1$
+        }
+
+        /* The default code is already durable where it comes from, it is written in this store once it moves. */
+        if (lastListCode == 0) {
+            lastListCode = defaultCode;
+        }
+
+        storedListCode = lastListCode;
+    }
+
+    /**
+     * Starts a new cycle. The messages whose retrieval failed in the previous cycle are below the code, so they
+     * are listed again.
+     * If members left the group since the last cycle, moves the code back to the code used at the time since which
+     * their work could be unprocessed, so that their messages are listed (and retrieved) again.
+     * @param rebalanceTime Time since which the work of members that left the group could be unprocessed.
+     * @return Code from which the list continues.
+     */
+    synchronized long start(final long rebalanceTime) {
+
+        pendingCodes.clear();
+
+        if (rebalanceTime != lastRebalanceTime) {
+            lastRebalanceTime = rebalanceTime;
+
+            Map.Entry<Long, Long> previous = listCodeHistory.floorEntry(rebalanceTime);
+            if (previous == null) {
+                previous = listCodeHistory.firstEntry();
+            }
+
+            if (previous != null && previous.getValue().longValue() < lastListCode) {
+                lastListCode = previous.getValue().longValue();
+                LOGGER.info(Messages.getString("MF_PARTITION_REWIND", name, String.valueOf(lastListCode))); //$NON-NLS-1$
+            }
+        }
+
+        listCodeHistory.put(System.currentTimeMillis(), lastListCode);
+        if (listCodeHistory.size() > MAX_LIST_CODE_HISTORY) {
+            listCodeHistory.remove(listCodeHistory.firstKey());
+        }
+
+        highestListedCode = lastListCode;
+        return lastListCode;
+    }
+
+    /**
+     * Records a listed message that has to be retrieved. The code will not move beyond it until it is stored.
+     * Must be called before {@link #listed(long)}.
+     * @param code Code of the message.
+     */
+    synchronized void retrieving(final long code) {
+
+        pendingCodes.add(code);
+    }
+
+    /**
+     * Records the end of the retrieval of a message.
+     * @param code Code of the message.
+     * @param stored <code>true</code> if the message was stored. <code>false</code> if it failed: the code will not
+     * move beyond it in this cycle.
+     */
+    synchronized void retrieved(final long code, final boolean stored) {
+
+        if (stored) {
+            pendingCodes.remove(code);
+            advance();
+        }
+    }
+
+    /**
+     * Records a listed message.
+     * @param code Code of the message.
+     */
+    synchronized void listed(final long code) {
+
+        if (code > highestListedCode) {
+            highestListedCode = code;
+        }
+
+        advance();
+    }
+
+    /**
+     * Records a list that failed. The messages after the stored code will be listed again.
+     */
+    synchronized void listFailed() {
+
+        lastListCode = storedListCode;
+    }
+
+    /**
+     * Returns the code from which the next list continues.
+     * @return List code.
+     */
+    synchronized long getListCode() {
+
+        return lastListCode;
+    }
+
+    /**
+     * Returns the last code written in the store.
+     * @return Stored list code.
+     */
+    synchronized long getStoredListCode() {
+
+        return storedListCode;
+    }
+
+    /**
+     * Writes the code in the store if it has changed. It is called once per cycle.
+     */
+    synchronized void save() {
+
+        if (lastListCode != storedListCode) {
+            try {
+                store.write(lastListCode);
+                storedListCode = lastListCode;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, Messages.getString("MF_UNABLE_TO_SAVE_LIST_CODE", name, lastListCode), e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Takes the highest listed code, but never goes beyond a message that is pending.
+     */
+    private void advance() {
+
+        long code = highestListedCode;
+        if (!pendingCodes.isEmpty()) {
+            code = Math.min(code, pendingCodes.first().longValue() - 1);
+        }
+
+        if (code > lastListCode) {
+            lastListCode = code;
+        }
+    }
+}
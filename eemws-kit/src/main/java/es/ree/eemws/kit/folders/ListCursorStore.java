@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.kit.folders;
+
+import java.io.IOException;
+
+/**
+ * Keeps the last list code of an output group, so that the next list continues from it.
+ * If the output group lists each message type apart, each type keeps its own code (see {@link #forType(String)}).
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public interface ListCursorStore {
+
+    /**
+     * Reads the stored list code.
+     * @return Stored list code. <code>0</code> if no code was stored.
+     * @throws IOException If the store cannot be read.
+     */
+    long read() throws IOException;
+
+    /**
+     * Stores the given list code. The code is durable once this method returns.
+     * @param code List code to store.
+     * @throws IOException If the code cannot be stored.
+     */
+    void write(long code) throws IOException;
+
+    /**
+     * Returns the store of the code of the list of the given message type, kept apart from this one.
+     * @param type Message type.
+     * @return Store of the code of the given type.
+     */
+    ListCursorStore forType(String type);
+}
@@ -28,7 +28,14 @@ import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import es.ree.eemws.kit.common.Messages;
@@ -40,7 +47,7 @@ import es.ree.eemws.kit.common.Messages;
  * @version 1.0 29/05/2014
  * 
  */
-public final class LockHandler extends UnicastRemoteObject implements LockHandlerIntf {
+public final class LockHandler extends UnicastRemoteObject implements LockHandlerIntf, LockService {
 
 	/** Class ID. */
 	private static final long serialVersionUID = 9069481093242188767L;
@@ -58,16 +65,25 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
 	private boolean isSingle = false;
 
 	/** Names of locked files. */
-	private List<String> lockFiles;
+	private final Set<String> lockFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
 	/** Names of messages to be locked. */
-	private List<String> tryLockFiles;
+	private final Set<String> tryLockFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/** Number of names that this member tried to lock. */
+	private final AtomicLong lockRequests = new AtomicLong();
+
+	/** Number of names that were locked by a neighbor when this member tried to lock them. */
+	private final AtomicLong lockConflicts = new AtomicLong();
+
+	/** Number of names that this member gave up because a neighbor with higher priority was trying to lock them. */
+	private final AtomicLong lockEvictions = new AtomicLong();
 
 	/** Unique ID for this service in the group. */
 	private int thisServiceID;
 
-	/** Members of the group. */
-	private ArrayList<Member> members = new ArrayList<>();
+	/** Members of the group. Read without locking by the workers, modified only when a member joins or leaves. */
+	private final List<Member> members = new CopyOnWriteArrayList<>();
 
 	/** Logging system. */
 	private static final Logger LOGGER = Logger.getLogger(LockHandler.class.getName());
@@ -87,8 +103,6 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
 			LOGGER.info(Messages.getString("MF_STAND_ALONE")); //$NON-NLS-1$
 		} else {
 			isSingle = false;
-			lockFiles = new ArrayList<>();
-			tryLockFiles = new ArrayList<>();
 
 			thisServiceID = Integer.parseInt(serviceID);
 			String thisServerURL = membersRmiUrls.get(thisServiceID - 1);
@@ -183,14 +197,61 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
 	 * Release the message passed as argument in order to can be retrieved by other members.
 	 * @param fileName ID of the message to be released.
 	 */
+	@Override
 	public void releaseLock(final String fileName) {
 		if (!isSingle) {
-			synchronized (lockFiles) {
-				lockFiles.remove(fileName);
-			}
+			lockFiles.remove(fileName);
 		}
 	}
 
+	/**
+	 * Release the messages passed as argument in order to can be retrieved by other members.
+	 * @param fileNames IDs of the messages to be released.
+	 */
+	@Override
+	public void releaseLock(final Collection<String> fileNames) {
+		if (!isSingle) {
+			lockFiles.removeAll(fileNames);
+		}
+	}
+
+	/**
+	 * Returns the number of messages currently locked by this member.
+	 * @return Size of the lock table.
+	 */
+	@Override
+	public int getLockedCount() {
+		return lockFiles.size();
+	}
+
+	/**
+	 * Returns the number of messages that this member tried to lock.
+	 * @return Number of lock requests.
+	 */
+	@Override
+	public long getLockRequests() {
+		return lockRequests.get();
+	}
+
+	/**
+	 * Returns the number of messages that were already locked by a neighbor when this member tried to lock them.
+	 * @return Number of conflicts.
+	 */
+	@Override
+	public long getLockConflicts() {
+		return lockConflicts.get();
+	}
+
+	/**
+	 * Returns the number of messages that this member gave up because a neighbor with higher priority was trying to
+	 * lock them at the same time.
+	 * @return Number of evictions.
+	 */
+	@Override
+	public long getLockEvictions() {
+		return lockEvictions.get();
+	}
+
 	/**
 	 * Indicate to this server the existence of a new member in the group.
 	 * @param remoteURL remote URL (rmi://host:port/service) of the new member.
@@ -231,35 +292,84 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
 	 * @param fileName Name of the message to lock.
 	 * @return <code>true</code> If the file could be locked <code>false</code> otherwise.
 	 */
+	@Override
 	public boolean tryLock(final String fileName) {
 		boolean canLock = true;
 
 		if (!isSingle) {
-			synchronized (lockFiles) {
-				tryLockFiles.add(fileName);
-			}
+			tryLockFiles.add(fileName);
+			canLock = completeLock(fileName);
+		}
 
-			boolean lockedByNeighbor = isLockedByNeighbor(fileName);
+		return canLock;
+	}
 
-			synchronized (lockFiles) {
-				if (!lockedByNeighbor) {
-					if (tryLockFiles.contains(fileName)) {
-						canLock = true;
-						lockFiles.add(fileName);
-					} else {
-						canLock = false;
-					}
-				} else {
-					canLock = false;
+	/**
+	 * Try to lock the messages passed as argument. The intention to lock all of them is registered at once, so
+	 * neighbors asking for any of them during the batch already see it. Each message is then checked with the neighbors.
+	 * @param fileNames Names of the messages to lock.
+	 * @return Names of the messages that could be locked.
+	 */
+	@Override
+	public List<String> tryLock(final Collection<String> fileNames) {
+		List<String> retValue = new ArrayList<>();
+
+		if (isSingle) {
+			retValue.addAll(fileNames);
+		} else {
+			tryLockFiles.addAll(fileNames);
+
+			for (String fileName : fileNames) {
+				if (completeLock(fileName)) {
+					retValue.add(fileName);
 				}
+			}
+		}
 
-				tryLockFiles.remove(fileName);
+		return retValue;
+	}
+
+	/**
+	 * Checks with the neighbors a message that this member is trying to lock and locks it if no neighbor has it.
+	 * The message is added to the locked ones before it is removed from the ones being tried, so a neighbor always
+	 * finds it in one of them. If a neighbor with higher priority removed it from the ones being tried in the
+	 * meantime, the lock is undone.
+	 * @param fileName Name of the message, already added to the ones being tried.
+	 * @return <code>true</code> If the file could be locked <code>false</code> otherwise.
+	 */
+	private boolean completeLock(final String fileName) {
+		boolean canLock = false;
+
+		lockRequests.incrementAndGet();
+
+		if (isLockedByNeighbor(fileName)) {
+			lockConflicts.incrementAndGet();
+			tryLockFiles.remove(fileName);
+		} else if (lockFiles.add(fileName)) {
+			if (tryLockFiles.remove(fileName)) {
+				canLock = true;
+			} else {
+				lockFiles.remove(fileName);
+				lockEvictions.incrementAndGet();
 			}
+		} else {
+
+			/* Already locked by another task of this member. */
+			tryLockFiles.remove(fileName);
 		}
 
 		return canLock;
 	}
 
+	/**
+	 * The work is not split among the members: every member tries to lock every message.
+	 * @return <code>0</code>.
+	 */
+	@Override
+	public long getRebalanceTime() {
+		return 0;
+	}
+
 	/**
 	 * Ask neighbors (other group members) whether the file is locked. If any communication problem is found (eg.
 	 * crashed), is removed from group.
@@ -269,21 +379,19 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
 	private boolean isLockedByNeighbor(final String fileName) {
 		boolean lockedByNeighbor = false;
 
-		int count = 0;
-
-		int numberOfMembers = members.size();
+		Iterator<Member> neighbors = members.iterator();
 
-		while (!lockedByNeighbor && (count < numberOfMembers)) {
-			LockHandlerIntf interfaceN = members.get(count).getRemoteReference();
+		while (!lockedByNeighbor && neighbors.hasNext()) {
+			Member member = neighbors.next();
+			LockHandlerIntf interfaceN = member.getRemoteReference();
 			boolean success = false;
 
 			for (int attempt = 0; !success && (attempt < NUM_RETRIES); attempt++) {
 				try {
 					lockedByNeighbor = interfaceN.isLocked(fileName, thisServiceID);
-					count++;
 					success = true;
 				} catch (RemoteException ex) {
-					LOGGER.warning(Messages.getString("MF_MEMBER_NOT_AVAILABLE", members.get(count).getUrl())); //$NON-NLS-1$
+					LOGGER.warning(Messages.getString("MF_MEMBER_NOT_AVAILABLE", member.getUrl())); //$NON-NLS-1$
 					try {
 						Thread.sleep(SLEEP_BEFORE_RETRY);
 					} catch (InterruptedException ex1) {
@@ -297,11 +405,8 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
 			 * longer until it is not be subscribed again.
 			 */
 			if (!success) {
-				synchronized (members) {
-					LOGGER.severe(Messages.getString("MF_MEMBER_GONE", members.get(count).getUrl())); //$NON-NLS-1$
-					members.remove(count);
-					numberOfMembers--;
-				}
+				LOGGER.severe(Messages.getString("MF_MEMBER_GONE", member.getUrl())); //$NON-NLS-1$
+				members.remove(member);
 			}
 		}
 
@@ -311,6 +416,8 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
 	/**
 	 * Check whether the message passed as argument is locked by this member. A message is locked if: - Is in the list
 	 * of Locked messages. - Is in the list of desired messages and this server has bigger priority (lower remote ID).
+	 * If this server has lower priority it gives up the message. The list of desired messages is checked before the
+	 * list of locked messages because a message is moved from the first one to the second one in this order.
 	 * @param fileName Name of the message to retrieve.
 	 * @param remoteID Remote ID of the asking server.
 	 * @return <code>true</code> if the message is locked by this member <code>false</code> otherwise.
@@ -320,15 +427,14 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
     public boolean isLocked(final String fileName, final int remoteID) throws RemoteException {
 		boolean retValue = false;
 
-		synchronized (lockFiles) {
-
-			retValue = (lockFiles.contains(fileName) || (tryLockFiles.contains(fileName) && thisServiceID < remoteID));
-
-			if (tryLockFiles.contains(fileName) && thisServiceID > remoteID) {
-				tryLockFiles.remove(fileName);
-			}
+		if (thisServiceID < remoteID) {
+			retValue = tryLockFiles.contains(fileName);
+		} else {
+			tryLockFiles.remove(fileName);
 		}
 
+		retValue = retValue || lockFiles.contains(fileName);
+
 		return retValue;
 	}
 
@@ -342,7 +448,7 @@ public final class LockHandler extends UnicastRemoteObject implements LockHandle
 		private String rmiUrl;
 
 		/** Remote RMI reference. */	
-		private LockHandlerIntf remoteReference;
+		private volatile LockHandlerIntf remoteReference;
 
 		
 		/**
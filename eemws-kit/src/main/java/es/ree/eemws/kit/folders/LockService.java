@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.kit.folders;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lock service used by the tasks so that a file or message is processed by only one member of the working group.
+ * The backend is chosen in the configuration (<code>LOCK_BACKEND</code>).
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public interface LockService {
+
+    /**
+     * Tries to lock the given name.
+     * @param name Name of the file or message to lock.
+     * @return <code>true</code> if the name was locked, <code>false</code> if it is locked by another member.
+     */
+    boolean tryLock(String name);
+
+    /**
+     * Tries to lock the given names at once (i.e. all the files of a folder scan).
+     * @param names Names of the files or messages to lock.
+     * @return Names that were locked, in the same order.
+     */
+    List<String> tryLock(Collection<String> names);
+
+    /**
+     * Releases the given name so that it can be locked by other members.
+     * @param name Name of the file or message to release.
+     */
+    void releaseLock(String name);
+
+    /**
+     * Releases the given names at once (i.e. all the files of a folder scan).
+     * @param names Names of the files or messages to release.
+     */
+    void releaseLock(Collection<String> names);
+
+    /**
+     * Returns the time since which the work owned by members that left the group could be unprocessed.
+     * Tasks that skip work owned by other members must process again the work detected since that time.
+     * @return Time in milliseconds. <code>0</code> if the work is not split among the members or if no member has left.
+     */
+    long getRebalanceTime();
+
+    /**
+     * Returns the number of names currently locked by this member.
+     * @return Number of locked names.
+     */
+    int getLockedCount();
+
+    /**
+     * Returns the number of names that this member tried to lock.
+     * @return Number of lock requests.
+     */
+    long getLockRequests();
+
+    /**
+     * Returns the number of names that were already locked by another member when this member tried to lock them.
+     * @return Number of conflicts.
+     */
+    long getLockConflicts();
+
+    /**
+     * Returns the number of names that this member gave up once locked (or while it was locking them) because
+     * another member took them.
+     * @return Number of evictions.
+     */
+    long getLockEvictions();
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.kit.folders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import es.ree.eemws.client.get.RetrievedMessage;
+import es.ree.eemws.client.list.MessageListEntry;
+import es.ree.eemws.core.utils.iec61968100.EnumMessageStatus;
+
+/**
+ * Plug-in called in-process by the magic folder after retrieving a message or receiving an acknowledgement,
+ * as an alternative to the external programs (<code>*_PROGRAM_CMD_LINE</code>).
+ * Implementations are found with {@link java.util.ServiceLoader}: add the jar to the classpath with a
+ * <code>META-INF/services/es.ree.eemws.kit.folders.MagicFolderPlugin</code> file listing the implementation classes.
+ * Implementations must have a public constructor without arguments and must be thread safe, they are called
+ * concurrently by all the input and output tasks.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public interface MagicFolderPlugin {
+
+    /**
+     * Initializes the plug-in. Called once before any other method.
+     * @param config System settings.
+     */
+    void init(Configuration config);
+
+    /**
+     * Called once a message is retrieved and stored, once per message even if it is stored in several output folders.
+     * @param entry List entry of the message (code, identification, version, type...).
+     * @param message Server's response, without payload.
+     * @param payload Stored file with the payload of the message. The file must not be modified.
+     * @throws IOException If the message cannot be processed. The error is logged.
+     */
+    void messageRetrieved(MessageListEntry entry, RetrievedMessage message, Path payload) throws IOException;
+
+    /**
+     * Called once an input file is sent and its acknowledgement (or fault) is received.
+     * The acknowledgement folders are not needed.
+     * @param sentFile Sent file.
+     * @param status Acknowledgement status.
+     * @param acknowledgement Acknowledgement (or fault) content.
+     * @throws IOException If the acknowledgement cannot be processed. The error is logged.
+     */
+    void acknowledgementReceived(File sentFile, EnumMessageStatus status, String acknowledgement) throws IOException;
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.kit.folders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.ree.eemws.client.get.RetrievedMessage;
+import es.ree.eemws.client.list.MessageListEntry;
+import es.ree.eemws.core.utils.iec61968100.EnumMessageStatus;
+import es.ree.eemws.kit.common.Messages;
+
+/**
+ * Loads the {@link MagicFolderPlugin} implementations found in the classpath and calls them.
+ * An error in a plug-in is logged and does not affect the other plug-ins nor the magic folder.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class MagicFolderPlugins {
+
+    /** Log system. */
+    private static final Logger LOGGER = Logger.getLogger(MagicFolderPlugins.class.getName());
+
+    /** Loaded plug-ins. */
+    private static volatile List<MagicFolderPlugin> plugins = Collections.emptyList();
+
+    /**
+     * Loads and initializes the plug-ins found in the classpath.
+     * @param config System settings.
+     */
+    public static synchronized void load(final Configuration config) {
+
+        List<MagicFolderPlugin> loaded = new ArrayList<>();
+        Iterator<MagicFolderPlugin> it = ServiceLoader.load(MagicFolderPlugin.class).iterator();
+
+        boolean hasNext = true;
+        while (hasNext) {
+            try {
+                hasNext = it.hasNext();
+                if (hasNext) {
+                    MagicFolderPlugin plugin = it.next();
+                    plugin.init(config);
+                    loaded.add(plugin);
+                    LOGGER.info(Messages.getString("MF_PLUGIN_LOADED", plugin.getClass().getName())); //$NON-NLS-1$
+                }
+            } catch (ServiceConfigurationError | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, Messages.getString("MF_PLUGIN_NOT_LOADED"), e); //$NON-NLS-1$
+            }
+        }
+
+        plugins = Collections.unmodifiableList(loaded);
+    }
+
+    /**
+     * Calls the plug-ins once a message is retrieved and stored.
+     * @param entry List entry of the message.
+     * @param message Server's response, without payload.
+     * @param payload Stored file with the payload of the message.
+     */
+    public static void messageRetrieved(final MessageListEntry entry, final RetrievedMessage message, final Path payload) {
+
+        for (MagicFolderPlugin plugin : plugins) {
+            try {
+                plugin.messageRetrieved(entry, message, payload);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, Messages.getString("MF_PLUGIN_ERROR", plugin.getClass().getName(), payload), e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Calls the plug-ins once an input file is sent and its acknowledgement is received.
+     * @param sentFile Sent file.
+     * @param status Acknowledgement status.
+     * @param acknowledgement Acknowledgement (or fault) content.
+     */
+    public static void acknowledgementReceived(final File sentFile, final EnumMessageStatus status, final String acknowledgement) {
+
+        for (MagicFolderPlugin plugin : plugins) {
+            try {
+                plugin.acknowledgementReceived(sentFile, status, acknowledgement);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, Messages.getString("MF_PLUGIN_ERROR", plugin.getClass().getName(), sentFile.getAbsolutePath()), e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     * Utility classes should have a private constructor.
+     */
+    private MagicFolderPlugins() {
+
+        /* This constructor must be empty. */
+    }
+}
@@ -24,7 +24,9 @@ package es.ree.eemws.kit.folders;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import es.ree.eemws.core.utils.config.ConfigException;
 import es.ree.eemws.kit.common.Messages;
@@ -47,6 +49,12 @@ public final class OutputConfigurationSet extends Configuration {
 
     /** Default delay time for loops in milliseconds. */
     private static final long DEFAULT_OUTPUT_DELAY = 180000L;
+
+    /** Default number of workers that retrieve messages concurrently. */
+    private static final int DEFAULT_NUM_WORKERS = 1;
+
+    /** Max number of workers that retrieve messages concurrently. */
+    private static final int MAX_NUM_WORKERS = 25;
  
     /** Output folder. */
     private String outputFolder;
@@ -54,6 +62,9 @@ public final class OutputConfigurationSet extends Configuration {
     /** List of message types to retrieve. */
     private List<String> typesToRetrieveList;
 
+    /** Set of message types to retrieve (for lookups). */
+    private Set<String> typesToRetrieveSet;
+
     /** Program to be executed when a file is saved. */
     private String programCmdLine;
 
@@ -63,6 +74,9 @@ public final class OutputConfigurationSet extends Configuration {
     /** Sleep time between run loops. */
     private long sleepTimeOutput;
 
+    /** Number of workers that retrieve messages concurrently. */
+    private int numWorkers = DEFAULT_NUM_WORKERS;
+
     /** Url end point. */
     private URL endPoint;
     
@@ -113,11 +127,22 @@ public final class OutputConfigurationSet extends Configuration {
 
         if (isNotNullAndNotEmpty(list)) {
             typesToRetrieveList = Arrays.asList(list.split(";")); //$NON-NLS-1$
+            typesToRetrieveSet = new HashSet<>(typesToRetrieveList);
         } else {
             typesToRetrieveList = null;
+            typesToRetrieveSet = null;
         }
     }
 
+    /**
+     * Checks whether the given message type must be retrieved by this set.
+     * @param type Message type.
+     * @return <code>true</code> if the type is configured or if all the types are retrieved.
+     */
+    public boolean isMessageTypeToRetrieve(final String type) {
+        return typesToRetrieveSet == null || typesToRetrieveSet.contains(type);
+    }
+
     /**
      * Gets the set of message types to be retrieved. 
      * @return List of messages types to be retrieved.
@@ -195,6 +220,38 @@ public final class OutputConfigurationSet extends Configuration {
         return sleepTimeOutput;
     }
 
+    /**
+     * Sets the number of workers that retrieve messages concurrently.
+     * @param value Value retrieved from the configuration.
+     * @param label The value name in the configuration set.
+     * @throws ConfigException If the given value is not a number.
+     */
+    public void setNumWorkers(final String value, final String label) throws ConfigException {
+        if (isNotNullAndNotEmpty(value)) {
+            try {
+                numWorkers = Integer.parseInt(value.trim());
+                if (numWorkers < DEFAULT_NUM_WORKERS) {
+                    throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", label, value)); //$NON-NLS-1$
+                }
+                if (numWorkers > MAX_NUM_WORKERS) {
+                    numWorkers = MAX_NUM_WORKERS;
+                }
+            } catch (NumberFormatException ex) {
+                throw new ConfigException(Messages.getString("MF_INVALID_NUMBER", label, value)); //$NON-NLS-1$
+            }
+        } else {
+            numWorkers = DEFAULT_NUM_WORKERS;
+        }
+    }
+
+    /**
+     * Gets the number of workers that retrieve messages concurrently.
+     * @return Number of workers that retrieve messages concurrently.
+     */
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
     /**
      * Sets this set url endpoint.
      * @param urlEndPoint This set url endpoint.
@@ -245,6 +302,8 @@ public final class OutputConfigurationSet extends Configuration {
 
         msg.append(TAB).append(Messages.getString("MF_CONFIG_URL_O", index, endPoint.toString())); //$NON-NLS-1$  
 
+        msg.append(TAB).append(Messages.getString("MF_CONFIG_NUM_WORKERS_O", index, numWorkers)); //$NON-NLS-1$  
+
         return msg.toString();
     }
 
@@ -23,17 +23,30 @@ package es.ree.eemws.kit.folders;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 
+import es.ree.eemws.client.common.ClientIdentity;
 import es.ree.eemws.client.get.GetMessage;
 import es.ree.eemws.client.get.RetrievedMessage;
 import es.ree.eemws.client.list.ListMessages;
 import es.ree.eemws.client.list.MessageListEntry;
+import es.ree.eemws.client.list.MessageListHandler;
 import es.ree.eemws.core.utils.file.FileUtil;
 import es.ree.eemws.core.utils.operations.get.GetOperationException;
 import es.ree.eemws.core.utils.operations.list.ListOperationException;
@@ -49,7 +62,7 @@ import es.ree.eemws.kit.common.Messages;
 public final class OutputTask implements Runnable {
 
     /** Object which locks message for group working. */
-    private LockHandler lh;
+    private LockService lh;
 
     /** Log system. */
     private static final Logger LOGGER = Logger.getLogger(OutputTask.class.getName());
@@ -77,11 +90,8 @@ public final class OutputTask implements Runnable {
     /** This task configuration set values. */
     private List<OutputConfigurationSet> ocs;
 
-    /** Last retrieved code. */
-    private long lastListCode;
-
-    /** Full list of files to retrieve. */
-    private List<String> totalTypesToRetrieve;
+    /** Full set of message types to retrieve. <code>null</code> if all the types are retrieved. */
+    private Set<String> totalTypesToRetrieve;
 
     /** Message List object. */
     private ListMessages list;
@@ -92,24 +102,44 @@ public final class OutputTask implements Runnable {
     /** This output task set of ids. */
     private String setIds;
 
-    /** Last retrieved file. */
-    private RetrievedMessage lastRetrievedFile = null;
-    
-    /** Preference object in order to keep the lastest list's code value. */
+    /** Preference object where previous versions kept the lastest list's code value. */
     private Preferences preferences = Preferences.userNodeForPackage(getClass()); 
 
+    /** Code from which each list continues, by message type (<code>null</code> if all the types are listed at once). */
+    private final Map<String, ListCursor> cursors = new LinkedHashMap<>();
+
+    /** Store of the code of the output group. If the lists are filtered by type, it keeps the lowest stored code. */
+    private final ListCursorStore groupStore;
+
+    /** Last code written in the store of the output group. */
+    private long groupStoredCode;
+
+    /** Executor that retrieves the messages concurrently. <code>null</code> if messages are retrieved one by one. */
+    private ExecutorService workers = null;
+
+    /** Permits for the messages being retrieved, the list is not read further while all the workers are busy. */
+    private Semaphore workerPermits = null;
+
+    /** Number of workers. */
+    private int numWorkers;
+
     /**
      * Constructor. Initializes parameters for detection thread.
      * @param lockHandler Lock Manager.
      * @param oc List of output configuration sets that shares the same url.
      * @param setIdss This output task set of ids.
+     * @param store Store of the lastest list's code value of this output group.
+     * @param identity Identity used to sign the requests and authenticate the connections. <code>null</code> to use the system settings.
      */
-    public OutputTask(final LockHandler lockHandler, final List<OutputConfigurationSet> oc, final String setIdss) {
+    public OutputTask(final LockService lockHandler, final List<OutputConfigurationSet> oc, final String setIdss, final ListCursorStore store,
+            final ClientIdentity identity) {
 
-        totalTypesToRetrieve = new ArrayList<>();
+        totalTypesToRetrieve = new LinkedHashSet<>();
         boolean retrieveAllMessages = false;
+        numWorkers = 1;
         for (OutputConfigurationSet o : oc) {
             LOGGER.info(o.toString());
+            numWorkers = Math.max(numWorkers, o.getNumWorkers());
 
             if (!retrieveAllMessages) {
                 List<String> lstRetr = o.getMessagesTypesList();
@@ -124,49 +154,85 @@ public final class OutputTask implements Runnable {
 
         URL endPoint = oc.get(0).getOutputUrlEndPoint(); 
         
-        lastListCode = preferences.getLong(oc.get(0).getOutputUrlEndPoint().toString(), 0);
-        
-        if (lastListCode != 0) {
-            LOGGER.info(Messages.getString("MF_CONFIG_LST_CODE", setIdss, String.valueOf(lastListCode)));   //$NON-NLS-1$
+        /* The code was kept by previous versions in the preferences, by url. */
+        ListCursor groupCursor = new ListCursor(setIdss, store, preferences.getLong(endPoint.toString(), 0));
+        groupStore = store;
+        groupStoredCode = groupCursor.getStoredListCode();
+
+        /*
+         * Each type keeps its own code: one list per type is made, so the codes of a type cannot move the code
+         * of another type beyond its messages created meanwhile. Types start from the code of the group.
+         */
+        if (totalTypesToRetrieve == null) {
+            cursors.put(null, groupCursor);
+        } else {
+            for (String type : totalTypesToRetrieve) {
+                cursors.put(type, new ListCursor(setIdss + " " + type, store.forType(type), groupCursor.getListCode())); //$NON-NLS-1$
+            }
+        }
+
+        for (Map.Entry<String, ListCursor> entry : cursors.entrySet()) {
+            if (entry.getValue().getListCode() != 0) {
+                String listName = setIdss;
+                if (entry.getKey() != null) {
+                    listName = setIdss + " " + entry.getKey(); //$NON-NLS-1$
+                }
+
+                LOGGER.info(Messages.getString("MF_CONFIG_LST_CODE", listName, String.valueOf(entry.getValue().getListCode())));   //$NON-NLS-1$
+            }
         }
                 
         list = new ListMessages();
         list.setEndPoint(endPoint);
+        list.setIdentity(identity);
 
         get = new GetMessage();
         get.setEndPoint(endPoint);
+        get.setIdentity(identity);
 
         setIds = setIdss;
         lh = lockHandler;
         ocs = oc;
 
+        if (numWorkers > 1) {
+            workers = Executors.newFixedThreadPool(numWorkers);
+            workerPermits = new Semaphore(numWorkers);
+        }
     }
 
     /**
      * Retrieves and stores a message.
      * @param mle List element retrieved in detection process.
+     * @return <code>true</code> if the message was stored (or it is retrieved by another member).
+     * <code>false</code> if it could not be retrieved or saved.
      */
-    private void retrieveAndStore(final MessageListEntry mle) {
+    private boolean retrieveAndStore(final MessageListEntry mle) {
 
         long code = mle.getCode().longValue();
         String codeStr = String.valueOf(code);
+        boolean retValue = true;
 
         boolean lockFile = lh.tryLock(codeStr);
 
         if (lockFile) {
 
+            RetrievedFile retrieved = new RetrievedFile();
+
             try {
                 
-                lastRetrievedFile = null;
-
                 for (OutputConfigurationSet oc : ocs) {
-                    List<String> type = oc.getMessagesTypesList();
-                    if (type == null || type.contains(mle.getType())) {
-                        saveFile(mle, oc);
+                    if (oc.isMessageTypeToRetrieve(mle.getType())) {
+                        saveFile(mle, oc, retrieved);
                     }
                 }
 
+                /* Plug-ins are called only if the message was stored now (not if all the files already existed). */
+                if (retrieved.stored) {
+                    MagicFolderPlugins.messageRetrieved(mle, retrieved.message, retrieved.path);
+                }
+
             } catch (GetOperationException e) {
+                retValue = false;
                 if (mle.getVersion() == null) {
                     LOGGER.log(Level.SEVERE, Messages.getString("MF_UNABLE_TO_GET_WO_VERSION", setIds, String.valueOf(code), mle.getMessageIdentification()), e); //$NON-NLS-1$
                 } else {
@@ -174,6 +240,7 @@ public final class OutputTask implements Runnable {
                             mle.getMessageIdentification(), mle.getVersion()), e);
                 }
             } catch (IOException e) {
+                retValue = false;
                 if (mle.getVersion() == null) {
                     LOGGER.log(Level.SEVERE, Messages.getString("MF_UNABLE_TO_SAVE_WO_VERSION", setIds, String.valueOf(code), mle.getMessageIdentification()), e); //$NON-NLS-1$
                 } else {
@@ -183,22 +250,31 @@ public final class OutputTask implements Runnable {
             } finally {
                 lh.releaseLock(codeStr);
                 
-                /* Avoid holding this (probably) huge value */
-                lastRetrievedFile = null;
+                /* Remove the temporal file if it was not used (i.e. all the output files already existed). */
+                if (retrieved.pendingTmpFile != null && !retrieved.pendingTmpFile.toFile().delete()) {
+                    LOGGER.warning(Messages.getString("MF_UNABLE_TO_DELETE_TMP_FILE", setIds, retrieved.pendingTmpFile)); //$NON-NLS-1$
+                }
             }
         }
+
+        return retValue;
     }
 
     /**
      * Gets the message given its <code>MessageListEntry</code>.
      * The method wont call the get operation if the file was already retrieved.
+     * The payload is written into a temporal file in the output folder of the given configuration.
      * @param mle MessageListEntry with the information about the file to be retrieved.
+     * @param oc Configuration of the output folder that requests the file.
+     * @param retrieved Values of the message retrieval.
      * @return The message retrieved according the given MessageListEntry parameter. <code>null</code> is never returned.
      * @throws GetOperationException If the message cannot be retrieved.
+     * @throws IOException If the temporal file cannot be created.
      */
-    private RetrievedMessage retrieveFile(final MessageListEntry mle) throws GetOperationException {
+    private RetrievedMessage retrieveFile(final MessageListEntry mle, final OutputConfigurationSet oc, 
+            final RetrievedFile retrieved) throws GetOperationException, IOException {
 
-        if (lastRetrievedFile == null) {
+        if (retrieved.message == null) {
 
             long code = mle.getCode().longValue();
             String codeStr = String.valueOf(code);
@@ -209,7 +285,16 @@ public final class OutputTask implements Runnable {
                 LOGGER.info(Messages.getString("MF_RETRIEVING_MESSAGE", setIds, codeStr, mle.getMessageIdentification(), mle.getVersion())); //$NON-NLS-1$
             }
 
-            lastRetrievedFile = get.get(code);
+            Path tmpFile = File.createTempFile(TMP_PREFIX, null, new File(oc.getOutputFolder())).toPath();
+            try {
+                retrieved.message = get.getTo(code, tmpFile);
+            } catch (GetOperationException e) {
+                Files.deleteIfExists(tmpFile);
+                throw e;
+            }
+
+            retrieved.path = tmpFile;
+            retrieved.pendingTmpFile = tmpFile;
 
             if (mle.getVersion() == null) {
                 LOGGER.info(Messages.getString("MF_RETRIEVED_MESSAGE_WO_VERSION", setIds, codeStr, mle.getMessageIdentification())); //$NON-NLS-1$
@@ -218,7 +303,7 @@ public final class OutputTask implements Runnable {
             }
         }
         
-        return lastRetrievedFile;
+        return retrieved.message;
 
     }
 
@@ -226,12 +311,13 @@ public final class OutputTask implements Runnable {
      * Saves the current message and (optionally) executes a program.
      * @param mle Retrieved message information.
      * @param oc Configuration to be used in order to save the file. 
+     * @param retrieved Values of the message retrieval.
      * @throws IOException If the message cannot be saved or if the provided command line produces error.
      * @throws GetOperationException  If the message cannot be retrieved.
      */
-    private void saveFile(final MessageListEntry mle, final OutputConfigurationSet oc) throws IOException, GetOperationException {
+    private void saveFile(final MessageListEntry mle, final OutputConfigurationSet oc, final RetrievedFile retrieved) throws IOException, GetOperationException {
 
-        String fileName = calculateFileName(mle, oc.getFileNameExtension());
+        String fileName = calculateFileName(mle, oc, retrieved);
 
         String abosoluteFileName= oc.getOutputFolder() + File.separator + fileName;
 
@@ -241,22 +327,26 @@ public final class OutputTask implements Runnable {
 
         } else {
  
-            RetrievedMessage message = retrieveFile(mle);
+            retrieveFile(mle, oc, retrieved);
   
             /*
              * Avoid "broken files" in case of anormal program termination. First write into a temporaly file then
-             * rename it.
+             * rename it. The file retrieved for this folder is renamed, other folders get a copy of it.
              */
-            File tmpFile;
-            tmpFile = File.createTempFile(TMP_PREFIX, null, new File(oc.getOutputFolder()));
-            if (message.isBinary()) {
-                FileUtil.write(tmpFile.getAbsolutePath(), message.getBinaryPayload());
+            File outputFolder = new File(oc.getOutputFolder());
+            Path tmpFile;
+            if (retrieved.pendingTmpFile != null && Files.isSameFile(retrieved.pendingTmpFile.getParent(), outputFolder.toPath())) {
+                tmpFile = retrieved.pendingTmpFile;
+                retrieved.pendingTmpFile = null;
             } else {
-                FileUtil.writeUTF8(tmpFile.getAbsolutePath(), message.getStringPayload()); 
+                tmpFile = File.createTempFile(TMP_PREFIX, null, outputFolder).toPath();
+                Files.copy(retrieved.path, tmpFile, StandardCopyOption.REPLACE_EXISTING);
             }
 
             File file = new File(abosoluteFileName);
-            tmpFile.renameTo(file);
+            tmpFile.toFile().renameTo(file);
+            retrieved.path = file.toPath();
+            retrieved.stored = true;
 
             ProgramExecutor.execute(oc.getProgramCmdLine(), file, null, mle.getType());
         }
@@ -275,26 +365,29 @@ public final class OutputTask implements Runnable {
      *  NOTE: AUTO forces file retrieving in order to know the proper extension according to the file's content.
      *  
      *  @param mle Current message list entry.
-     *  @param fExtension Extension configuration value.
+     *  @param oc Configuration of the output folder, holds the extension configuration value.
+     *  @param retrieved Values of the message retrieval.
      *  @throws GetOperationException if file cannot be retrieved.
+     *  @throws IOException if the retrieved file cannot be read.
      */
-    private String calculateFileName(final MessageListEntry mle, final String fExtension) throws GetOperationException {
+    private String calculateFileName(final MessageListEntry mle, final OutputConfigurationSet oc, 
+            final RetrievedFile retrieved) throws GetOperationException, IOException {
 
         StringBuilder extStr = new StringBuilder();
+        String fExtension = oc.getFileNameExtension();
         
         
         if (fExtension.equalsIgnoreCase(OutputConfigurationSet.FILE_NAME_EXTENSION_AUTO)) {
 
             /* Extension == AUTO and the file was not yet retrieved -> get the file */
-            RetrievedMessage message = retrieveFile(mle);
+            RetrievedMessage message = retrieveFile(mle, oc, retrieved);
 
             if (message.isBinary()) {
                             
                 extStr.append(message.getFileName());
                                
-                byte[] b = message.getBinaryPayload();
-                if (b.length > FIRST_BYTES_OF_MESSAGE) {
-                    String headerValue = new String(message.getBinaryPayload(), 0, FIRST_BYTES_OF_MESSAGE);
+                String headerValue = readFileHeader(retrieved.path);
+                if (headerValue != null) {
                     boolean found = false;
                     for (int cont = 0; cont < HEADER_VALUES.length && !found; cont++) {
                         if (headerValue.indexOf(HEADER_VALUES[cont]) != -1) {
@@ -338,52 +431,162 @@ public final class OutputTask implements Runnable {
 
    
     /**
-     * Gets a message list using the last list code.
-     * @return A message list. <code>null</code> if the client cannot connect with the server.
+     * Reads the first bytes of the given file in order to guess its type.
+     * @param path File to read.
+     * @return The first bytes of the file as String. <code>null</code> if the file is too short.
+     * @throws IOException If the file cannot be read.
+     */
+    private static String readFileHeader(final Path path) throws IOException {
+
+        String retValue = null;
+
+        if (Files.size(path) > FIRST_BYTES_OF_MESSAGE) {
+            byte[] header = new byte[FIRST_BYTES_OF_MESSAGE];
+            try (InputStream in = Files.newInputStream(path)) {
+                int read = 0;
+                int len = 0;
+                while (read < header.length && len != -1) {
+                    len = in.read(header, read, header.length - read);
+                    if (len > 0) {
+                        read += len;
+                    }
+                }
+            }
+
+            retValue = new String(header);
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Processes a list element: retrieves it if its type is configured and updates the list code.
+     * If there are several workers, the message is retrieved by one of them. The caller is blocked while all
+     * the workers are busy.
+     * A message that cannot be retrieved or saved keeps the list code below it, so it is listed again.
+     * @param message List element.
+     * @param cursor Code of the list where the element was read.
      */
-    private List<MessageListEntry> listMessages() {
-        List<MessageListEntry> messageList = null;
+    private void processListEntry(final MessageListEntry message, final ListCursor cursor) {
 
-        try {
-            messageList = list.list(lastListCode);
-        } catch (ListOperationException ex) {
-            LOGGER.log(Level.SEVERE, Messages.getString("MF_UNABLE_TO_LIST", setIds), ex); //$NON-NLS-1$
+        final long msgCode = message.getCode().longValue();
+
+        if (totalTypesToRetrieve == null || totalTypesToRetrieve.contains(message.getType())) {
+
+            cursor.retrieving(msgCode);
+
+            if (workers == null) {
+
+                boolean stored = false;
+                try {
+                    stored = retrieveAndStore(message);
+                } finally {
+                    cursor.retrieved(msgCode, stored);
+                }
+
+            } else {
+
+                workerPermits.acquireUninterruptibly();
+                workers.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        boolean stored = false;
+                        try {
+                            stored = retrieveAndStore(message);
+                        } catch (RuntimeException ex) {
+                            LOGGER.log(Level.SEVERE, Messages.getString("MF_UNEXPECTED_ERROR_O", setIds), ex); //$NON-NLS-1$
+                        } finally {
+                            cursor.retrieved(msgCode, stored);
+                            workerPermits.release();
+                        }
+                    }
+                });
+            }
+        }
+
+        cursor.listed(msgCode);
+    }
+
+    /**
+     * Writes the lowest stored code of the types in the store of the output group, so that the group does not
+     * list again messages already stored if the type filter is removed.
+     */
+    private void saveGroupCode() {
+
+        long code = Long.MAX_VALUE;
+        for (ListCursor cursor : cursors.values()) {
+            code = Math.min(code, cursor.getStoredListCode());
         }
 
-        return messageList;
+        if (code != groupStoredCode) {
+            try {
+                groupStore.write(code);
+                groupStoredCode = code;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, Messages.getString("MF_UNABLE_TO_SAVE_LIST_CODE", setIds, code), e); //$NON-NLS-1$
+            }
+        }
     }
 
     /**
      * Detection cycle.
+     * If only some message types are retrieved, the server is asked for a list of each type, each one from the
+     * code of its type.
+     * List elements are processed as they are read from the response.
+     * The cycle ends once all the listed messages are retrieved.
      */
     @Override
     public void run() {
         try {
-            List<MessageListEntry> messageList = listMessages();
 
-            if (messageList != null) {
-                int len = messageList.size();
-
-                if (len > 1) {
-                    StatusIcon.setBusy();
+            long rebalanceTime = lh.getRebalanceTime();
+            Map<String, ListEntryHandler> handlers = new LinkedHashMap<>();
+            for (Map.Entry<String, ListCursor> entry : cursors.entrySet()) {
+                ListCursor cursor = entry.getValue();
+                handlers.put(entry.getKey(), new ListEntryHandler(cursor, cursor.start(rebalanceTime), entry.getKey() == null));
+            }
 
-                    for (final MessageListEntry message : messageList) {
+            Set<String> failedTypes = new HashSet<>();
+            try {
+                for (Map.Entry<String, ListEntryHandler> entry : handlers.entrySet()) {
+                    try {
+                        list.list(entry.getValue().getListCode(), entry.getKey(), entry.getValue());
+                    } catch (ListOperationException ex) {
+                        failedTypes.add(entry.getKey());
+                        LOGGER.log(Level.SEVERE, Messages.getString("MF_UNABLE_TO_LIST", setIds), ex); //$NON-NLS-1$
+                    }
+                }
+            } finally {
 
-                        if (totalTypesToRetrieve == null || totalTypesToRetrieve.contains(message.getType())) {
-                            retrieveAndStore(message);
-                        }
+                /* Waits for the workers. */
+                if (workerPermits != null) {
+                    workerPermits.acquireUninterruptibly(numWorkers);
+                    workerPermits.release(numWorkers);
+                }
 
-                        /* Take the highest message code to start listing form this one. */
-                        int msgCode = message.getCode().intValue();
-                        if (msgCode > lastListCode) {
-                            lastListCode = msgCode;
-                            preferences.putLong(ocs.get(0).getOutputUrlEndPoint().toString(), lastListCode);
-                        }
+                /* The list could have ended before some of its elements: start again from the stored code. */
+                boolean busy = false;
+                for (Map.Entry<String, ListEntryHandler> entry : handlers.entrySet()) {
+                    ListCursor cursor = cursors.get(entry.getKey());
+                    if (failedTypes.contains(entry.getKey())) {
+                        cursor.listFailed();
+                    } else {
+                        cursor.save();
                     }
 
+                    busy = busy || entry.getValue().isBusy();
+                }
+
+                if (totalTypesToRetrieve != null) {
+                    saveGroupCode();
+                }
+
+                if (busy) {
                     StatusIcon.setIdle();
                 }
             }
+
         } catch (Exception ex) {
 
             // Defensive exception, if runnable task ends with exception won't be exectued againg!
@@ -391,4 +594,113 @@ public final class OutputTask implements Runnable {
         }
     }
 
+    /**
+     * Processes the list elements as they are read from the response.
+     * Elements whose code is not higher than the code used to list are ignored.
+     * If the whole list is requested, lists with only one element are not processed, so the first element is 
+     * held until the second one arrives. Lists filtered by type are always processed, otherwise a single message
+     * of a type could be skipped by the codes of the other types.
+     */
+    private final class ListEntryHandler implements MessageListHandler {
+
+        /** Code of the list. */
+        private final ListCursor cursor;
+
+        /** Code used to list. */
+        private final long listCode;
+
+        /** Whether the first element is held until there is a second one. */
+        private final boolean holdFirst;
+
+        /** First element of the list, held until there is a second one. */
+        private MessageListEntry first = null;
+
+        /** Number of elements received. */
+        private int count = 0;
+
+        /** Whether elements were processed. */
+        private boolean busy = false;
+
+        /**
+         * Creates a new handler.
+         * @param listCursor Code of the list.
+         * @param code Code used to list.
+         * @param holdFirstEntry Whether the first element is held until there is a second one.
+         */
+        private ListEntryHandler(final ListCursor listCursor, final long code, final boolean holdFirstEntry) {
+            cursor = listCursor;
+            listCode = code;
+            holdFirst = holdFirstEntry;
+        }
+
+        /**
+         * Returns the code used to list.
+         * @return List code.
+         */
+        private long getListCode() {
+            return listCode;
+        }
+
+        /**
+         * Returns whether elements were processed.
+         * @return <code>true</code> if at least one element was processed.
+         */
+        private boolean isBusy() {
+            return busy;
+        }
+
+        /**
+         * Processes the given list element.
+         * @param entry List element.
+         */
+        @Override
+        public void handle(final MessageListEntry entry) {
+
+            count++;
+            if (holdFirst && count == 1) {
+                first = entry;
+            } else {
+                if (!busy) {
+                    busy = true;
+                    StatusIcon.setBusy();
+                }
+
+                if (first != null) {
+                    process(first);
+                    first = null;
+                }
+
+                process(entry);
+            }
+        }
+
+        /**
+         * Processes the given element if its code is higher than the code used to list.
+         * @param entry List element.
+         */
+        private void process(final MessageListEntry entry) {
+
+            if (entry.getCode().longValue() > listCode) {
+                processListEntry(entry, cursor);
+            }
+        }
+    }
+
+    /**
+     * Values of a message retrieval. They are kept while the message is saved in all the output folders.
+     */
+    private static final class RetrievedFile {
+
+        /** Retrieved message (without payload, the payload is written to disk). */
+        private RetrievedMessage message = null;
+
+        /** File with the payload of the retrieved message. */
+        private Path path = null;
+
+        /** Temporal file with the payload of the retrieved message that was not yet renamed. */
+        private Path pendingTmpFile = null;
+
+        /** Whether the message was stored in at least one output folder (<code>path</code> is then a stored file). */
+        private boolean stored = false;
+    }
 }
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.kit.folders;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.ree.eemws.kit.common.Messages;
+
+/**
+ * Lock service that splits the work among the live members of the group.
+ * Each file or message belongs to one member according to a consistent hash of its name over the live members,
+ * the other members do not even try to lock it. The names owned by this member are locked with the configured
+ * backend, so the work is never processed twice while the members are being rebalanced.
+ * Members announce themselves by updating a heartbeat file in the shared lease folder. A member whose heartbeat
+ * is older than the lease time is considered gone and its names are taken by the remaining members.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class PartitionedLockService implements LockService {
+
+    /** Extension of the heartbeat files. */
+    private static final String MEMBER_EXTENSION = ".member"; //$NON-NLS-1$
+
+    /** Pattern of the heartbeat files. */
+    private static final String MEMBER_PATTERN = "*" + MEMBER_EXTENSION; //$NON-NLS-1$
+
+    /** Characters of the member identification that are not valid in a file name. */
+    private static final String INVALID_FILE_NAME_CHARS = "[^A-Za-z0-9._-]"; //$NON-NLS-1$
+
+    /** Number of points of each member in the hash ring, so that the names are evenly distributed. */
+    private static final int VIRTUAL_NODES = 100;
+
+    /** Heartbeats are sent this number of times per lease time. */
+    private static final int HEARTBEATS_PER_LEASE = 3;
+
+    /** Number of bytes of the digest used as hash. */
+    private static final int HASH_BYTES = 8;
+
+    /** Number of bits per byte. */
+    private static final int BITS_PER_BYTE = 8;
+
+    /** Mask of a byte. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** Hash algorithm. */
+    private static final String HASH_ALGORITHM = "MD5"; //$NON-NLS-1$
+
+    /** Name of the heartbeat thread. */
+    private static final String THREAD_NAME = "partition-heartbeat"; //$NON-NLS-1$
+
+    /** Logging system. */
+    private static final Logger LOGGER = Logger.getLogger(PartitionedLockService.class.getName());
+
+    /** Backend that locks the names owned by this member. */
+    private final LockService backend;
+
+    /** Folder of the heartbeat files. */
+    private final Path memberFolder;
+
+    /** Milliseconds after which a member without heartbeat is considered gone. */
+    private final long leaseTime;
+
+    /** Identification of this member. */
+    private final String memberId;
+
+    /** Heartbeat file of this member. */
+    private final Path heartbeat;
+
+    /** Live members. */
+    private TreeSet<String> members = new TreeSet<>();
+
+    /** Hash ring: points of the live members. */
+    private volatile TreeMap<Long, String> ring = new TreeMap<>();
+
+    /** Time since which the work of members that left the group could be unprocessed. */
+    private volatile long rebalanceTime = 0;
+
+    /**
+     * Constructor. Announces this member and starts sending heartbeats.
+     * @param lockBackend Backend that locks the names owned by this member.
+     * @param config System settings.
+     */
+    public PartitionedLockService(final LockService lockBackend, final Configuration config) {
+
+        backend = lockBackend;
+        memberFolder = Paths.get(config.getLeaseFolder());
+        leaseTime = config.getLeaseTime();
+
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost"; //$NON-NLS-1$
+        }
+
+        String id = host;
+        if (config.getInstanceID() != null) {
+            id = id + "-" + config.getInstanceID(); //$NON-NLS-1$
+        }
+
+        memberId = id.replaceAll(INVALID_FILE_NAME_CHARS, "_"); //$NON-NLS-1$
+        heartbeat = memberFolder.resolve(memberId + MEMBER_EXTENSION);
+
+        refreshMembers();
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        long period = leaseTime / HEARTBEATS_PER_LEASE;
+        scheduler.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                refreshMembers();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tries to lock the given name if it is owned by this member.
+     * @param name Name of the file or message to lock.
+     * @return <code>true</code> if the name is owned by this member and it was locked.
+     */
+    @Override
+    public boolean tryLock(final String name) {
+
+        return isOwned(name) && backend.tryLock(name);
+    }
+
+    /**
+     * Tries to lock the given names owned by this member.
+     * @param names Names of the files or messages to lock.
+     * @return Names that were locked, in the same order.
+     */
+    @Override
+    public List<String> tryLock(final Collection<String> names) {
+
+        List<String> owned = new ArrayList<>();
+        for (String name : names) {
+            if (isOwned(name)) {
+                owned.add(name);
+            }
+        }
+
+        return backend.tryLock(owned);
+    }
+
+    /**
+     * Releases the given name.
+     * @param name Name of the file or message to release.
+     */
+    @Override
+    public void releaseLock(final String name) {
+
+        backend.releaseLock(name);
+    }
+
+    /**
+     * Releases the given names.
+     * @param names Names of the files or messages to release.
+     */
+    @Override
+    public void releaseLock(final Collection<String> names) {
+
+        backend.releaseLock(names);
+    }
+
+    /**
+     * Returns the time since which the work owned by members that left the group could be unprocessed.
+     * A member is detected as gone up to one lease time after its last heartbeat and it could have stopped
+     * one lease time before, so the time is two lease times before the detection.
+     * @return Time in milliseconds. <code>0</code> if no member has left the group.
+     */
+    @Override
+    public long getRebalanceTime() {
+
+        return rebalanceTime;
+    }
+
+    /**
+     * Returns the number of names currently locked by this member.
+     * @return Number of names locked by the backend.
+     */
+    @Override
+    public int getLockedCount() {
+
+        return backend.getLockedCount();
+    }
+
+    /**
+     * Returns the number of names owned by this member that it tried to lock.
+     * @return Number of lock requests of the backend.
+     */
+    @Override
+    public long getLockRequests() {
+
+        return backend.getLockRequests();
+    }
+
+    /**
+     * Returns the number of names owned by this member that were already locked by another member.
+     * @return Number of conflicts of the backend.
+     */
+    @Override
+    public long getLockConflicts() {
+
+        return backend.getLockConflicts();
+    }
+
+    /**
+     * Returns the number of names that this member gave up because another member took them.
+     * @return Number of evictions of the backend.
+     */
+    @Override
+    public long getLockEvictions() {
+
+        return backend.getLockEvictions();
+    }
+
+    /**
+     * Checks whether the given name is owned by this member.
+     * @param name Name of the file or message.
+     * @return <code>true</code> if the name is owned by this member.
+     */
+    private boolean isOwned(final String name) {
+
+        TreeMap<Long, String> currentRing = ring;
+        boolean retValue = true;
+
+        if (!currentRing.isEmpty()) {
+            Map.Entry<Long, String> owner = currentRing.ceilingEntry(hash(name));
+            if (owner == null) {
+                owner = currentRing.firstEntry();
+            }
+
+            retValue = memberId.equals(owner.getValue());
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Updates the heartbeat of this member and reads the live members. The hash ring is rebuilt if they have changed.
+     */
+    private synchronized void refreshMembers() {
+
+        long now = System.currentTimeMillis();
+
+        try {
+            if (Files.exists(heartbeat)) {
+                Files.setLastModifiedTime(heartbeat, FileTime.fromMillis(now));
+            } else {
+                Files.write(heartbeat, memberId.getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, Messages.getString("MF_LEASE_ERROR", heartbeat), e); //$NON-NLS-1$
+        }
+
+        TreeSet<String> live = new TreeSet<>();
+        live.add(memberId);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(memberFolder, MEMBER_PATTERN)) {
+            for (Path file : files) {
+                if (now - Files.getLastModifiedTime(file).toMillis() <= leaseTime) {
+                    String name = file.getFileName().toString();
+                    live.add(name.substring(0, name.length() - MEMBER_EXTENSION.length()));
+                }
+            }
+        } catch (IOException e) {
+
+            /* Keep the current members until the folder can be read again. */
+            live = null;
+            LOGGER.log(Level.WARNING, Messages.getString("MF_LEASE_ERROR", memberFolder), e); //$NON-NLS-1$
+        }
+
+        if (live != null && !live.equals(members)) {
+            if (!live.containsAll(members)) {
+                rebalanceTime = now - 2 * leaseTime;
+            }
+
+            members = live;
+            TreeMap<Long, String> newRing = new TreeMap<>();
+            for (String member : live) {
+                for (int cont = 0; cont < VIRTUAL_NODES; cont++) {
+                    newRing.put(hash(member + "#" + cont), member); //$NON-NLS-1$
+                }
+            }
+
+            ring = newRing;
+            LOGGER.info(Messages.getString("MF_PARTITION_MEMBERS", live.size(), live.toString())); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Returns the hash of the given value.
+     * @param value Value to hash.
+     * @return First bytes of the value's digest.
+     */
+    private static long hash(final String value) {
+
+        long retValue = 0;
+
+        try {
+            byte[] digest = MessageDigest.getInstance(HASH_ALGORITHM).digest(value.getBytes(StandardCharsets.UTF_8));
+            for (int cont = 0; cont < HASH_BYTES; cont++) {
+                retValue = (retValue << BITS_PER_BYTE) | (digest[cont] & BYTE_MASK);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            retValue = value.hashCode();
+        }
+
+        return retValue;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.kit.folders;
+
+import java.io.IOException;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Keeps the last list code of an output group in the user's preferences.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class PreferencesListCursorStore implements ListCursorStore {
+
+    /** Preference object in order to keep the list code value. */
+    private final Preferences preferences = Preferences.userNodeForPackage(OutputTask.class);
+
+    /** Separator between the output group identification and the message type. */
+    private static final String TYPE_SEPARATOR = "#"; //$NON-NLS-1$
+
+    /** Output group identification. */
+    private final String groupKey;
+
+    /** Preference key of the list code. */
+    private final String key;
+
+    /**
+     * Creates a new store for the given output group.
+     * @param cursorKey Output group identification.
+     */
+    public PreferencesListCursorStore(final String cursorKey) {
+
+        groupKey = cursorKey;
+
+        if (cursorKey.length() > Preferences.MAX_KEY_LENGTH) {
+            key = cursorKey.substring(0, Preferences.MAX_KEY_LENGTH - Integer.SIZE / 4) + String.format("%08x", cursorKey.hashCode()); //$NON-NLS-1$
+        } else {
+            key = cursorKey;
+        }
+    }
+
+    /**
+     * Reads the stored list code.
+     * @return Stored list code. <code>0</code> if no code was stored.
+     */
+    @Override
+    public long read() {
+
+        return preferences.getLong(key, 0);
+    }
+
+    /**
+     * Stores the given list code and flushes the preferences.
+     * @param code List code to store.
+     * @throws IOException If the preferences cannot be flushed.
+     */
+    @Override
+    public void write(final long code) throws IOException {
+
+        preferences.putLong(key, code);
+        try {
+            preferences.flush();
+        } catch (BackingStoreException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns the store of the given message type, with its own preference key.
+     * @param type Message type.
+     * @return Store of the code of the given type.
+     */
+    @Override
+    public ListCursorStore forType(final String type) {
+
+        return new PreferencesListCursorStore(groupKey + TYPE_SEPARATOR + type);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+
+package es.ree.eemws.kit.folders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.ree.eemws.kit.common.Messages;
+
+/**
+ * Accumulates the files of the programs executed in batch mode and executes each program once for many files.
+ * A batch is executed when it reaches the configured number of files or when the configured time has elapsed since
+ * its first file. The files are listed in a manifest file, one line per file with the absolute file name, the
+ * message type and the acknowledgement status separated by tabs (type and status can be empty).
+ * Pending batches are executed when the application ends.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class ProgramBatcher {
+
+    /** Log system. */
+    private static final Logger LOGGER = Logger.getLogger(ProgramBatcher.class.getName());
+
+    /** Default max number of files of a batch. */
+    private static final int DEFAULT_MAX_FILES = 100;
+
+    /** Default max time in milliseconds that a file waits for its batch. */
+    private static final long DEFAULT_WINDOW = 5000L;
+
+    /** Prefix of the manifest files. */
+    private static final String MANIFEST_PREFIX = "manifest_"; //$NON-NLS-1$
+
+    /** Extension of the manifest files. */
+    private static final String MANIFEST_EXTENSION = ".txt"; //$NON-NLS-1$
+
+    /** Separator of the fields of a manifest line. */
+    private static final char FIELD_SEPARATOR = '\t';
+
+    /** Name of the thread that executes the batches whose time has elapsed. */
+    private static final String THREAD_NAME = "program-batch"; //$NON-NLS-1$
+
+    /** Name of the thread that executes the pending batches when the application ends. */
+    private static final String SHUTDOWN_THREAD_NAME = "program-batch-shutdown"; //$NON-NLS-1$
+
+    /** Pending batches (manifest lines) by command line. */
+    private static final Map<String, List<String>> BATCHES = new HashMap<>();
+
+    /** Executes the batches whose time has elapsed. */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /** Max number of files of a batch. */
+    private static int maxFiles = DEFAULT_MAX_FILES;
+
+    /** Max time in milliseconds that a file waits for its batch. */
+    private static long window = DEFAULT_WINDOW;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                executeAll();
+            }
+        }, SHUTDOWN_THREAD_NAME));
+    }
+
+    /**
+     * Configures the size of the batches.
+     * @param files Max number of files of a batch.
+     * @param time Max time in milliseconds that a file waits for its batch.
+     */
+    public static void configure(final int files, final long time) {
+
+        synchronized (BATCHES) {
+            maxFiles = files;
+            window = time;
+        }
+    }
+
+    /**
+     * Adds the given file to the batch of the given command line.
+     * @param whatToExecute Command line to be executed.
+     * @param fileName File name where the message was stored.
+     * @param status Message status, only for acks. Can be <code>null</code>.
+     * @param type Message type, only for get. Can be <code>null</code>.
+     */
+    public static void add(final String whatToExecute, final File fileName, final String status, final String type) {
+
+        StringBuilder line = new StringBuilder(fileName.getAbsolutePath());
+        line.append(FIELD_SEPARATOR);
+        if (type != null) {
+            line.append(type);
+        }
+
+        line.append(FIELD_SEPARATOR);
+        if (status != null) {
+            line.append(status);
+        }
+
+        List<String> full = null;
+
+        synchronized (BATCHES) {
+            List<String> batch = BATCHES.get(whatToExecute);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                BATCHES.put(whatToExecute, batch);
+                scheduleExecution(whatToExecute, batch);
+            }
+
+            batch.add(line.toString());
+
+            if (batch.size() >= maxFiles) {
+                BATCHES.remove(whatToExecute);
+                full = batch;
+            }
+        }
+
+        if (full != null) {
+            execute(whatToExecute, full, false);
+        }
+    }
+
+    /**
+     * Schedules the execution of the given batch once its time has elapsed, unless it was executed before
+     * because it was full.
+     * @param whatToExecute Command line of the batch.
+     * @param batch New batch.
+     */
+    private static void scheduleExecution(final String whatToExecute, final List<String> batch) {
+
+        SCHEDULER.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+
+                boolean pending;
+                synchronized (BATCHES) {
+                    pending = BATCHES.get(whatToExecute) == batch;
+                    if (pending) {
+                        BATCHES.remove(whatToExecute);
+                    }
+                }
+
+                if (pending) {
+                    execute(whatToExecute, batch, false);
+                }
+            }
+        }, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes all the pending batches and waits for them.
+     */
+    private static void executeAll() {
+
+        Map<String, List<String>> pending;
+        synchronized (BATCHES) {
+            pending = new HashMap<>(BATCHES);
+            BATCHES.clear();
+        }
+
+        for (Map.Entry<String, List<String>> batch : pending.entrySet()) {
+            execute(batch.getKey(), batch.getValue(), true);
+        }
+    }
+
+    /**
+     * Writes the manifest file of the given batch and executes its command line.
+     * @param whatToExecute Command line of the batch.
+     * @param batch Manifest lines.
+     * @param wait <code>true</code> to execute the program in the current thread.
+     */
+    private static void execute(final String whatToExecute, final List<String> batch, final boolean wait) {
+
+        try {
+            File manifest = File.createTempFile(MANIFEST_PREFIX, MANIFEST_EXTENSION);
+            Files.write(manifest.toPath(), batch, StandardCharsets.UTF_8);
+            ProgramExecutor.executeBatch(whatToExecute, manifest, batch.size(), wait);
+
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, Messages.getString("MF_RUN_ERROR", whatToExecute), e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Constructor.
+     * Utility classes should have a private constructor.
+     */
+    private ProgramBatcher() {
+
+        /* This constructor must be empty. */
+    }
+}
@@ -21,11 +21,21 @@
 
 package es.ree.eemws.kit.folders;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,6 +43,10 @@ import es.ree.eemws.kit.common.Messages;
 
 /**
  * Executes an external program.
+ * Programs are executed by a bounded pool: if too many programs are waiting, the task that asks for the
+ * execution runs the program itself and waits for it, so a burst of messages cannot start an unbounded number
+ * of processes. The output of each program is drained by the pool thread that executes it until the program ends.
+ * Command lines with the token <code>@MANIFEST@</code> are executed once for many files, see {@link ProgramBatcher}.
  * 
  * @author Red Eléctrica de España, S.A.U.
  * @version 1.0 02/02/2016
@@ -57,7 +71,63 @@ public final class ProgramExecutor {
 
     /** Replaces in a command line the message status. */
     private static final String STATUS = "@STATUS@"; //$NON-NLS-1$
-    
+
+    /** Replaces in a command line the manifest file name. Command lines with this token are executed in batch mode. */
+    private static final String MANIFEST = "@MANIFEST@"; //$NON-NLS-1$
+
+    /** Default max number of programs executed at once (used if the executor is not configured). */
+    private static final int DEFAULT_MAX_CONCURRENT = 4;
+
+    /** Default max number of programs waiting to be executed (used if the executor is not configured). */
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /** Size of the buffer used to drain the output of the programs. */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /** Milliseconds that the pool thread waits for more output of a program that has not ended. */
+    private static final long DRAIN_WAIT_MS = 50;
+
+    /** Prefix of the names of the pool threads. */
+    private static final String THREAD_NAME = "program-executor-"; //$NON-NLS-1$
+
+    /** Name of the thread that stops the programs that run for too long. */
+    private static final String TIMEOUT_THREAD_NAME = "program-timeout"; //$NON-NLS-1$
+
+    /** Number of programs started. */
+    private static final AtomicLong STARTED = new AtomicLong();
+
+    /** Number of programs ended with exit code 0. */
+    private static final AtomicLong SUCCEEDED = new AtomicLong();
+
+    /** Number of programs ended with an exit code other than 0. */
+    private static final AtomicLong FAILED = new AtomicLong();
+
+    /** Number of programs stopped because they ran for too long. */
+    private static final AtomicLong TIMED_OUT = new AtomicLong();
+
+    /** Number of programs that could not be started. */
+    private static final AtomicLong NOT_STARTED = new AtomicLong();
+
+    /** Pool that executes the programs. */
+    private static ThreadPoolExecutor pool;
+
+    /** Stops the programs that run for too long. */
+    private static ScheduledExecutorService timeoutScheduler;
+
+    /** Max execution time of a program in milliseconds, <code>0</code> if there is no limit. */
+    private static long timeout = 0;
+
+    /**
+     * Configures the limits of the program executions. Programs already waiting are still executed.
+     * @param config System settings.
+     */
+    public static synchronized void configure(final Configuration config) {
+
+        createPool(config.getProgramMaxConcurrent(), config.getProgramQueueSize(), config.getProgramTimeout());
+        ProgramBatcher.configure(config.getProgramBatchMaxFiles(), config.getProgramBatchWindow());
+        LOGGER.info(Messages.getString("MF_RUN_LIMITS", config.getProgramMaxConcurrent(), config.getProgramQueueSize(), timeout)); //$NON-NLS-1$
+    }
+
     /**
      * Executes the given program.
      * @param whatToExecute Command line to be executed.
@@ -68,86 +138,317 @@ public final class ProgramExecutor {
     public static void execute(final String whatToExecute, final File fileName, final String status, final String type) {
         
         String cmd = ""; //$NON-NLS-1$
-                
-        try {
-
-            if (whatToExecute != null) {
-
-                cmd = whatToExecute;
-                /* On windows platforms paths uses "\" when replaced by other string the character will disapear!. */
-                cmd = cmd.replaceAll(FILE_PATH, fileName.getParent().replaceAll("\\\\", "\\\\\\\\")); //$NON-NLS-1$ //$NON-NLS-2$
-                cmd = cmd.replaceAll(FILE_NAME, fileName.getName());
-                cmd = cmd.replaceAll(ABS_FILE_NAME, fileName.getAbsolutePath().replaceAll("\\\\", "\\\\\\\\")); //$NON-NLS-1$ //$NON-NLS-2$
-                if (status != null) {
-                    cmd = cmd.replaceAll(STATUS, status);
-                }
-                
-                if (type != null) {
-                    cmd = cmd.replaceAll(FILE_TYPE, type);
-                }
 
-                LOGGER.info(Messages.getString("MF_RUN_INFO", cmd)); //$NON-NLS-1$
-                Runtime rt = Runtime.getRuntime();
-                Process proc = rt.exec(cmd);
-                StreamConsumer errorGobbler = new StreamConsumer(proc.getErrorStream(), cmd);
-                StreamConsumer outputGobbler = new StreamConsumer(proc.getInputStream(), cmd);
-                errorGobbler.start();
-                outputGobbler.start();
+        if (whatToExecute != null && whatToExecute.contains(MANIFEST)) {
+            ProgramBatcher.add(whatToExecute, fileName, status, type);
+
+        } else if (whatToExecute != null) {
+
+            cmd = whatToExecute;
+            /* On windows platforms paths uses "\" when replaced by other string the character will disapear!. */
+            cmd = cmd.replaceAll(FILE_PATH, fileName.getParent().replaceAll("\\\\", "\\\\\\\\")); //$NON-NLS-1$ //$NON-NLS-2$
+            cmd = cmd.replaceAll(FILE_NAME, fileName.getName());
+            cmd = cmd.replaceAll(ABS_FILE_NAME, fileName.getAbsolutePath().replaceAll("\\\\", "\\\\\\\\")); //$NON-NLS-1$ //$NON-NLS-2$
+            if (status != null) {
+                cmd = cmd.replaceAll(STATUS, status);
             }
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, Messages.getString("MF_RUN_ERROR", cmd), e); //$NON-NLS-1$
+            
+            if (type != null) {
+                cmd = cmd.replaceAll(FILE_TYPE, type);
+            }
+
+            LOGGER.info(Messages.getString("MF_RUN_INFO", cmd)); //$NON-NLS-1$
+            getPool().execute(new ProgramRun(cmd, null));
         }
     }
 
     /**
-     * Constructor.
-     * Utility classes should have a private constructor.
+     * Executes the given program once for all the files listed in the given manifest file.
+     * The manifest file is removed once the program ends.
+     * @param whatToExecute Command line to be executed.
+     * @param manifest Manifest file.
+     * @param numFiles Number of files listed in the manifest file, for logging only.
+     * @param wait <code>true</code> to execute the program in the current thread.
      */
-    private ProgramExecutor() {
+    static void executeBatch(final String whatToExecute, final File manifest, final int numFiles, final boolean wait) {
 
-        /* This constructor must be empty. */
+        /* On windows platforms paths uses "\" when replaced by other string the character will disapear!. */
+        String cmd = whatToExecute.replaceAll(MANIFEST, manifest.getAbsolutePath().replaceAll("\\\\", "\\\\\\\\")); //$NON-NLS-1$ //$NON-NLS-2$
+
+        LOGGER.info(Messages.getString("MF_RUN_BATCH_INFO", cmd, numFiles)); //$NON-NLS-1$
+        ProgramRun run = new ProgramRun(cmd, manifest);
+        if (wait) {
+            run.run();
+        } else {
+            getPool().execute(run);
+        }
     }
-}
 
-/**
- * Reads the given input stream doing nothing with its content.
- */
-class StreamConsumer extends Thread {
+    /**
+     * Returns the number of programs started.
+     * @return Number of programs started.
+     */
+    public static long getStartedCount() {
+        return STARTED.get();
+    }
 
-    /** Input stream to be consumed. */
-    private InputStream inputStrm;
+    /**
+     * Returns the number of programs ended with exit code 0.
+     * @return Number of programs ended successfully.
+     */
+    public static long getSucceededCount() {
+        return SUCCEEDED.get();
+    }
 
-    /** Command line that is executing, for logging only. */
-    private String whatExecuting;
+    /**
+     * Returns the number of programs ended with an exit code other than 0.
+     * @return Number of programs ended with error.
+     */
+    public static long getFailedCount() {
+        return FAILED.get();
+    }
 
-    /** Log system. */
-    private static final Logger LOGGER = Logger.getLogger(ProgramExecutor.class.getName());
+    /**
+     * Returns the number of programs stopped because they ran for too long.
+     * @return Number of programs stopped.
+     */
+    public static long getTimedOutCount() {
+        return TIMED_OUT.get();
+    }
+
+    /**
+     * Returns the number of programs that could not be started.
+     * @return Number of programs that could not be started.
+     */
+    public static long getNotStartedCount() {
+        return NOT_STARTED.get();
+    }
+
+    /**
+     * Returns the number of programs waiting to be executed.
+     * @return Number of programs waiting.
+     */
+    public static int getWaitingCount() {
+        return getPool().getQueue().size();
+    }
+
+    /**
+     * Creates the pool that executes the programs. The previous pool (if any) is shut down.
+     * @param maxConcurrent Max number of programs executed at once.
+     * @param queueSize Max number of programs waiting to be executed.
+     * @param maxTime Max execution time of a program in milliseconds, <code>0</code> if there is no limit.
+     */
+    private static synchronized void createPool(final int maxConcurrent, final int queueSize, final long maxTime) {
+
+        if (pool != null) {
+            pool.shutdown();
+        }
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+
+                Thread thread = new Thread(runnable, THREAD_NAME + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        timeout = maxTime;
+        if (timeout > 0 && timeoutScheduler == null) {
+            timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+
+                    Thread thread = new Thread(runnable, TIMEOUT_THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the pool that executes the programs. Creates it with the default limits if it is not configured.
+     * @return Pool that executes the programs.
+     */
+    private static synchronized ThreadPoolExecutor getPool() {
+
+        if (pool == null) {
+            createPool(DEFAULT_MAX_CONCURRENT, DEFAULT_QUEUE_SIZE, 0);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Schedules the stop of the given process if it runs for too long.
+     * @param proc Started process.
+     * @return Scheduled stop, <code>null</code> if there is no limit.
+     */
+    private static synchronized ScheduledFuture<?> scheduleTimeout(final Process proc) {
+
+        ScheduledFuture<?> retValue = null;
+
+        if (timeout > 0) {
+            retValue = timeoutScheduler.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    proc.destroy();
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        return retValue;
+    }
 
     /**
      * Constructor.
-     * Creates a new consumer for the given InputStream.
-     * @param is InputStream to be consumed.
-     * @param whatToExecute 
+     * Utility classes should have a private constructor.
      */
-    StreamConsumer(final InputStream is, final String whatToExecute) {
-        inputStrm = is;
-        whatExecuting = whatToExecute;
+    private ProgramExecutor() {
+
+        /* This constructor must be empty. */
     }
 
     /**
-     * Reads the configured input stream until it is empty.
+     * Executes a command line, reads its output doing nothing with it and waits for it to end.
      */
-    @Override
-    public void run() {
-        try (InputStreamReader isr = new InputStreamReader(inputStrm); BufferedReader br = new BufferedReader(isr);) {
+    private static final class ProgramRun implements Runnable {
+
+        /** Command line to execute. */
+        private final String cmd;
+
+        /** Manifest file removed once the program ends, <code>null</code> if there is no manifest. */
+        private final File manifest;
 
-            String line = null;
-            do {
-                line = br.readLine();
-            } while (line != null);
+        /**
+         * Constructor.
+         * @param whatToExecute Command line to execute.
+         * @param manifestFile Manifest file of the program. Can be <code>null</code>.
+         */
+        ProgramRun(final String whatToExecute, final File manifestFile) {
+            cmd = whatToExecute;
+            manifest = manifestFile;
+        }
+
+        /**
+         * Executes the command line. The command line is split in the same way as {@link Runtime#exec(String)} does.
+         */
+        @Override
+        public void run() {
+
+            List<String> command = new ArrayList<>();
+            StringTokenizer st = new StringTokenizer(cmd);
+            while (st.hasMoreTokens()) {
+                command.add(st.nextToken());
+            }
+
+            try {
+                Process proc = null;
+                try {
+                    proc = new ProcessBuilder(command).redirectErrorStream(true).start();
+                } catch (IOException | IllegalArgumentException e) {
+                    NOT_STARTED.incrementAndGet();
+                    LOGGER.log(Level.SEVERE, Messages.getString("MF_RUN_ERROR", cmd), e); //$NON-NLS-1$
+                }
+
+                if (proc != null) {
+                    STARTED.incrementAndGet();
+                    waitForEnd(proc);
+                }
+
+            } finally {
+                if (manifest != null && !manifest.delete()) {
+                    LOGGER.warning(Messages.getString("MF_UNABLE_TO_DELETE", manifest.getAbsolutePath())); //$NON-NLS-1$
+                }
+            }
+        }
+
+        /**
+         * Drains the output of the given started program, waits for it to end and counts its result.
+         * A failure while reading the output does not prevent collecting the exit code.
+         * @param proc Started program.
+         */
+        private void waitForEnd(final Process proc) {
+
+            ScheduledFuture<?> stop = scheduleTimeout(proc);
+
+            try {
+                try {
+                    drainOutput(proc);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, Messages.getString("MF_RUN_OUTPUT_ERROR", cmd), e); //$NON-NLS-1$
+                }
+
+                int exitCode = proc.waitFor();
+
+                if (stop != null && !stop.cancel(false)) {
+                    TIMED_OUT.incrementAndGet();
+                    LOGGER.warning(Messages.getString("MF_RUN_TIMEOUT", cmd, timeout)); //$NON-NLS-1$
+                } else if (exitCode == 0) {
+                    SUCCEEDED.incrementAndGet();
+                } else {
+                    FAILED.incrementAndGet();
+                    LOGGER.warning(Messages.getString("MF_RUN_EXIT_CODE", cmd, exitCode)); //$NON-NLS-1$
+                }
+
+            } catch (InterruptedException e) {
+                proc.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Reads and ignores the output of the given program, so that the program does not block, until it ends.
+         * The output is only read when available: a program that is stopped (or ends) while its children still
+         * hold its output open would otherwise block the pool thread forever. The stream is closed once the
+         * program ends, the rest of the output is discarded.
+         * @param proc Started program.
+         * @throws IOException If the output cannot be read.
+         * @throws InterruptedException If the thread is interrupted while waiting for output.
+         */
+        private static void drainOutput(final Process proc) throws IOException, InterruptedException {
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            try (InputStream is = proc.getInputStream()) {
+                boolean ended = false;
+                while (!ended) {
+                    int available = is.available();
+                    if (available > 0) {
+                        is.read(buffer, 0, Math.min(available, BUFFER_SIZE));
+                    } else {
+                        ended = hasEnded(proc);
+                        if (!ended) {
+                            Thread.sleep(DRAIN_WAIT_MS);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Checks whether the given program has ended.
+         * @param proc Started program.
+         * @return <code>true</code> if the program has ended.
+         */
+        private static boolean hasEnded(final Process proc) {
+
+            boolean retValue = true;
+
+            try {
+                proc.exitValue();
+            } catch (IllegalThreadStateException e) {
+                retValue = false;
+            }
 
-        } catch (IOException ioe) {
-            LOGGER.log(Level.SEVERE, Messages.getString("MF_RUN_ERROR", whatExecuting), ioe); //$NON-NLS-1$
+            return retValue;
         }
     }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.kit.folders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link LeaseLockHandler} with three members sharing the same lease folder.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class LeaseLockHandlerTest {
+
+    /** Lease time of the tests (long enough so that leases are not renewed while the tests run). */
+    private static final long LEASE_TIME = 60000;
+
+    /** Locked name. */
+    private static final String NAME = "message"; //$NON-NLS-1$
+
+    /** Shared lease folder. */
+    private Path folder;
+
+    /** First member. */
+    private LeaseLockHandler member1;
+
+    /** Second member. */
+    private LeaseLockHandler member2;
+
+    /** Third member. */
+    private LeaseLockHandler member3;
+
+    /**
+     * Creates the shared folder and the three members.
+     * @throws IOException If the folder cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+
+        folder = Files.createTempDirectory("leases"); //$NON-NLS-1$
+        member1 = new LeaseLockHandler(folder, LEASE_TIME, "member1"); //$NON-NLS-1$
+        member2 = new LeaseLockHandler(folder, LEASE_TIME, "member2"); //$NON-NLS-1$
+        member3 = new LeaseLockHandler(folder, LEASE_TIME, "member3"); //$NON-NLS-1$
+    }
+
+    /**
+     * Removes the shared folder.
+     * @throws IOException If the folder cannot be removed.
+     */
+    @After
+    public void tearDown() throws IOException {
+
+        for (Path file : getFiles()) {
+            Files.delete(file);
+        }
+
+        Files.delete(folder);
+    }
+
+    /**
+     * A name is locked by only one member until it is released.
+     * @throws IOException If the lease folder cannot be read.
+     */
+    @Test
+    public void nameIsLockedByOneMember() throws IOException {
+
+        assertTrue(member1.tryLock(NAME));
+        assertFalse(member2.tryLock(NAME));
+        assertFalse(member3.tryLock(NAME));
+
+        member1.releaseLock(NAME);
+        assertEquals(0, getFiles().size());
+        assertTrue(member2.tryLock(NAME));
+    }
+
+    /**
+     * A member pauses longer than the lease time: its lease is taken by only one of the other members, and once it
+     * resumes it neither renews nor removes the lease of the new owner.
+     * @throws IOException If the lease cannot be handled.
+     */
+    @Test
+    public void expiredLeaseIsTakenByOneMember() throws IOException {
+
+        assertTrue(member1.tryLock(NAME));
+        age(getFiles().get(0));
+
+        assertTrue(member2.tryLock(NAME));
+        assertFalse(member3.tryLock(NAME));
+        assertEquals("member2", getOwner()); //$NON-NLS-1$
+
+        FileTime renewed = Files.getLastModifiedTime(getFiles().get(0));
+        member1.renewLeases();
+        member1.releaseLock(NAME);
+
+        assertEquals("member2", getOwner()); //$NON-NLS-1$
+        assertEquals(renewed, Files.getLastModifiedTime(getFiles().get(0)));
+        assertFalse(member3.tryLock(NAME));
+        assertFalse(member1.tryLock(NAME));
+
+        assertEquals(0, member1.getLockedCount());
+        assertEquals(2, member1.getLockRequests());
+        assertEquals(1, member1.getLockConflicts());
+        assertEquals(1, member1.getLockEvictions());
+        assertEquals(1, member2.getLockedCount());
+        assertEquals(2, member3.getLockConflicts());
+    }
+
+    /**
+     * Interleaving of three members: member3 sees an expired lease, member1 releases it and member2 locks the name
+     * again from the first generation before member3 creates the next generation. Only member2 keeps the lock.
+     * @throws IOException If the lease cannot be handled.
+     */
+    @Test
+    public void outdatedViewDoesNotLockTwice() throws IOException {
+
+        assertTrue(member1.tryLock(NAME));
+        age(getFiles().get(0));
+
+        /* member3 reads the folder now (generation 0 has expired) but creates its lease later. */
+        member1.releaseLock(NAME);
+        assertTrue(member2.tryLock(NAME));
+        assertFalse(member3.takeLease(NAME, 1));
+
+        assertEquals(1, getFiles().size());
+        assertEquals("member2", getOwner()); //$NON-NLS-1$
+        assertFalse(member3.tryLock(NAME));
+    }
+
+    /**
+     * Interleaving of three members: member3 creates the next generation of an expired lease while member1,
+     * from an outdated view of the folder, creates the first generation again. Only member3 keeps the lock, and
+     * the expired lease of member2 is removed.
+     * @throws IOException If the lease cannot be handled.
+     */
+    @Test
+    public void newGenerationWinsOverOutdatedView() throws IOException {
+
+        assertTrue(member2.tryLock(NAME));
+        age(getFiles().get(0));
+        Files.move(getFiles().get(0), folder.resolve(NAME + ".4.lease")); //$NON-NLS-1$
+
+        assertTrue(member3.tryLock(NAME));
+        assertFalse(member1.takeLease(NAME, 0));
+
+        assertEquals(1, getFiles().size());
+        assertEquals("member3", getOwner()); //$NON-NLS-1$
+        assertEquals(NAME + ".5.lease", getFiles().get(0).getFileName().toString()); //$NON-NLS-1$
+
+        member2.renewLeases();
+        member2.releaseLock(NAME);
+        assertEquals(1, getFiles().size());
+    }
+
+    /**
+     * Ages the given lease file beyond the lease time.
+     * @param lease Lease file.
+     * @throws IOException If the file cannot be modified.
+     */
+    private static void age(final Path lease) throws IOException {
+
+        Files.setLastModifiedTime(lease, FileTime.fromMillis(System.currentTimeMillis() - 2 * LEASE_TIME));
+    }
+
+    /**
+     * Returns the owner written in the only lease file.
+     * @return Owner of the lease.
+     * @throws IOException If the folder or the file cannot be read.
+     */
+    private String getOwner() throws IOException {
+
+        List<Path> files = getFiles();
+        assertEquals(1, files.size());
+
+        String content = new String(Files.readAllBytes(files.get(0)), StandardCharsets.UTF_8);
+        return content.substring(0, content.indexOf(' '));
+    }
+
+    /**
+     * Returns the files of the lease folder.
+     * @return Files of the folder.
+     * @throws IOException If the folder cannot be read.
+     */
+    private List<Path> getFiles() throws IOException {
+
+        List<Path> retValue = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                retValue.add(file);
+            }
+        }
+
+        return retValue;
+    }
+}
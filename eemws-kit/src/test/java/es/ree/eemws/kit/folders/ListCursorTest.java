@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 Red Eléctrica de España, S.A.U.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ *  by the Free Software Foundation, version 3 of the license.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTIBIILTY or FITNESS FOR A PARTICULAR PURPOSE. See GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program. If not, see
+ * http://www.gnu.org/licenses/.
+ *
+ * Any redistribution and/or modification of this program has to make
+ * reference to Red Eléctrica de España, S.A.U. as the copyright owner of
+ * the program.
+ */
+package es.ree.eemws.kit.folders;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests of the list code kept by {@link ListCursor}.
+ *
+ * @author Red Eléctrica de España S.A.U.
+ * @version 1.0 17/10/2026
+ */
+public final class ListCursorTest {
+
+    /**
+     * A message whose retrieval failed keeps the stored code below it, and it is listed again in the next cycle.
+     */
+    @Test
+    public void failedRetrievalKeepsStoredCodeBelowIt() {
+
+        MemoryStore store = new MemoryStore(10);
+        ListCursor cursor = new ListCursor("", store, 0); //$NON-NLS-1$
+
+        assertEquals(10, cursor.start(0));
+        retrieve(cursor, 11, true);
+        retrieve(cursor, 12, false);
+        retrieve(cursor, 13, true);
+        cursor.save();
+
+        assertEquals(11, store.code);
+
+        /* The failed message is listed again (with the ones after it) and retrieved. */
+        assertEquals(11, cursor.start(0));
+        retrieve(cursor, 12, true);
+        retrieve(cursor, 13, true);
+        cursor.save();
+
+        assertEquals(13, store.code);
+    }
+
+    /**
+     * The code does not move beyond a message that is still being retrieved.
+     */
+    @Test
+    public void codeWaitsForMessagesBeingRetrieved() {
+
+        MemoryStore store = new MemoryStore(0);
+        ListCursor cursor = new ListCursor("", store, 5); //$NON-NLS-1$
+
+        assertEquals(5, cursor.start(0));
+        cursor.retrieving(6);
+        cursor.listed(6);
+        retrieve(cursor, 7, true);
+        assertEquals(5, cursor.getListCode());
+
+        cursor.retrieved(6, true);
+        assertEquals(7, cursor.getListCode());
+    }
+
+    /**
+     * A failed list moves the code back to the stored one.
+     */
+    @Test
+    public void failedListGoesBackToStoredCode() {
+
+        MemoryStore store = new MemoryStore(20);
+        ListCursor cursor = new ListCursor("", store, 0); //$NON-NLS-1$
+
+        cursor.start(0);
+        retrieve(cursor, 21, true);
+        cursor.listFailed();
+        cursor.save();
+
+        assertEquals(20, cursor.getListCode());
+        assertEquals(20, store.code);
+    }
+
+    /**
+     * A type without stored code starts from the code of the group and does not go below it if its list fails.
+     */
+    @Test
+    public void newTypeStartsFromGroupCode() {
+
+        MemoryStore store = new MemoryStore(10);
+        ListCursor typeA = new ListCursor("A", store.forType("A"), store.code); //$NON-NLS-1$ //$NON-NLS-2$
+
+        assertEquals(10, typeA.start(0));
+        retrieve(typeA, 12, true);
+        typeA.listFailed();
+
+        assertEquals(10, typeA.start(0));
+    }
+
+    /**
+     * Lists of different types have interleaved codes: a message of one type created after its list was read, with
+     * a code lower than the highest code of the list of another type, is listed in the next cycle.
+     */
+    @Test
+    public void typesWithInterleavedCodesKeepTheirOwnCode() {
+
+        MemoryStore store = new MemoryStore(10);
+        ListCursor typeA = new ListCursor("A", store.forType("A"), store.code); //$NON-NLS-1$ //$NON-NLS-2$
+        ListCursor typeB = new ListCursor("B", store.forType("B"), store.code); //$NON-NLS-1$ //$NON-NLS-2$
+
+        /* Type A is listed (message 11), then message 15 of type A is created, then type B is listed (20 and 30). */
+        assertEquals(10, typeA.start(0));
+        assertEquals(10, typeB.start(0));
+        retrieve(typeA, 11, true);
+        retrieve(typeB, 20, true);
+        retrieve(typeB, 30, true);
+        typeA.save();
+        typeB.save();
+
+        /* Message 15 is below the highest code listed (30) but type A continues from its own code. */
+        assertEquals(11, typeA.start(0));
+        assertEquals(30, typeB.start(0));
+        retrieve(typeA, 15, true);
+        typeA.save();
+
+        assertEquals(15, typeA.getStoredListCode());
+        assertEquals(30, typeB.getStoredListCode());
+    }
+
+    /**
+     * Lists and retrieves a message.
+     * @param cursor Cursor of the list.
+     * @param code Code of the message.
+     * @param stored Whether the message is stored.
+     */
+    private static void retrieve(final ListCursor cursor, final long code, final boolean stored) {
+
+        cursor.retrieving(code);
+        cursor.retrieved(code, stored);
+        cursor.listed(code);
+    }
+
+    /**
+     * Store that keeps the code in memory.
+     */
+    private static final class MemoryStore implements ListCursorStore {
+
+        /** Stored code. */
+        private long code;
+
+        /**
+         * Creates a new store with the given code.
+         * @param initialCode Stored code.
+         */
+        private MemoryStore(final long initialCode) {
+
+            code = initialCode;
+        }
+
+        /**
+         * Reads the stored code.
+         * @return Stored code.
+         */
+        @Override
+        public long read() {
+
+            return code;
+        }
+
+        /**
+         * Stores the given code.
+         * @param newCode Code to store.
+         */
+        @Override
+        public void write(final long newCode) {
+
+            code = newCode;
+        }
+
+        /**
+         * Returns a new empty store.
+         * @param type Message type.
+         * @return New store.
+         */
+        @Override
+        public ListCursorStore forType(final String type) {
+
+            return new MemoryStore(0);
+        }
+    }
+}